@@ -0,0 +1,112 @@
+package cn.teahcourse.tablayout;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定容量的页面事件记录器，代替逐帧打印日志。
+ * <p>
+ * 滚动、选中、状态变化事件以基本类型写入环形缓冲区，记录时不分配对象、不加锁，
+ * 写满后覆盖最早的事件。只能由主线程写入，{@link #dump(PrintWriter)}可以在任意线程调用，
+ * 导出过程中被覆盖的事件会被跳过。
+ *
+ * <pre>
+ * TabEventRecorder recorder = new TabEventRecorder(256);
+ * tabLayout.setEventRecorder(recorder);
+ * ...
+ * recorder.dump(new PrintWriter(System.out, true));
+ * </pre>
+ */
+public final class TabEventRecorder {
+
+    public static final int EVENT_PAGE_SCROLLED = 0;
+    public static final int EVENT_PAGE_SELECTED = 1;
+    public static final int EVENT_SCROLL_STATE_CHANGED = 2;
+
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] types;
+    private final int[] positions;
+    private final float[] offsets;
+    private final int[] states;
+
+    /**
+     * 已写入的事件总数，每个事件的内容写完后才递增
+     */
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * @param capacity 最多保留的事件数，向上取整为2的幂
+     */
+    public TabEventRecorder(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        timestamps = new long[size];
+        types = new int[size];
+        positions = new int[size];
+        offsets = new float[size];
+        states = new int[size];
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 记录开始以来写入的事件总数，包括已经被覆盖的事件
+     */
+    public long getRecordedCount() {
+        return written.get();
+    }
+
+    void record(int type, int position, float offset, int state) {
+        long sequence = written.get();
+        int index = (int) (sequence & mask);
+        timestamps[index] = System.nanoTime();
+        types[index] = type;
+        positions[index] = position;
+        offsets[index] = offset;
+        states[index] = state;
+        written.lazySet(sequence + 1);
+    }
+
+    /**
+     * 按时间顺序输出仍在缓冲区中的事件，每行一个
+     */
+    public void dump(PrintWriter writer) {
+        long end = written.get();
+        long start = Math.max(0, end - (mask + 1));
+        for (long sequence = start; sequence < end; sequence++) {
+            int index = (int) (sequence & mask);
+            long timestamp = timestamps[index];
+            int type = types[index];
+            int position = positions[index];
+            float offset = offsets[index];
+            int state = states[index];
+            //读取期间写入线程可能已经开始覆盖这个位置
+            if (written.get() - sequence > mask) {
+                continue;
+            }
+
+            writer.print(timestamp);
+            writer.print(' ');
+            switch (type) {
+                case EVENT_PAGE_SCROLLED:
+                    writer.print("scrolled position=");
+                    writer.print(position);
+                    writer.print(" offset=");
+                    writer.println(offset);
+                    break;
+                case EVENT_PAGE_SELECTED:
+                    writer.print("selected position=");
+                    writer.println(position);
+                    break;
+                default:
+                    writer.print("state=");
+                    writer.println(state);
+                    break;
+            }
+        }
+        writer.flush();
+    }
+}
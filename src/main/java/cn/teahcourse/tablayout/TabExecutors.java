@@ -0,0 +1,44 @@
+package cn.teahcourse.tablayout;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * TabLayout共用的后台线程和主线程Handler，标题测量、异步绑定等任务都在同一个低优先级线程上串行执行
+ */
+final class TabExecutors {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static ExecutorService background;
+
+    private TabExecutors() {
+    }
+
+    static void execute(Runnable task) {
+        getBackground().execute(task);
+    }
+
+    static void postToMain(Runnable task) {
+        MAIN_HANDLER.post(task);
+    }
+
+    private static synchronized ExecutorService getBackground() {
+        if (background == null) {
+            background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "TabLayout-background");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return background;
+    }
+}
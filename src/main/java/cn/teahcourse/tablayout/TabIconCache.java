@@ -0,0 +1,157 @@
+package cn.teahcourse.tablayout;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.v4.util.LruCache;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内共享的Tab图标缓存。
+ * <p>
+ * 图标按Tab的高度降采样后解码，按(资源id, 尺寸)缓存，相同图标在多个Tab、多个TabLayout之间
+ * 只解码一次；视口外的Tab在后台线程解码，解码完成后再设置到Tab上。
+ * 矢量图、Shape等无法解码为位图的资源返回null，由调用方按普通资源设置。
+ */
+final class TabIconCache {
+
+    /**
+     * 最多使用进程可用内存的1/16
+     */
+    private static final LruCache<Key, Bitmap> CACHE =
+            new LruCache<Key, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16)) {
+                @Override
+                protected int sizeOf(Key key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+
+    private static final Set<Integer> UNDECODABLE =
+            Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    private TabIconCache() {
+    }
+
+    static Key key(int resId, int size) {
+        return new Key(resId, size);
+    }
+
+    /**
+     * 资源是否已知无法解码为位图
+     */
+    static boolean isUndecodable(int resId) {
+        return UNDECODABLE.contains(resId);
+    }
+
+    static Bitmap getCached(Key key) {
+        return CACHE.get(key);
+    }
+
+    /**
+     * 在调用线程解码图标，命中缓存时直接返回
+     */
+    static Bitmap get(Resources res, Key key) {
+        Bitmap bitmap = CACHE.get(key);
+        if (bitmap == null && !UNDECODABLE.contains(key.resId)) {
+            bitmap = decode(res, key.resId, key.size);
+            if (bitmap == null) {
+                UNDECODABLE.add(key.resId);
+            } else {
+                CACHE.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 在后台线程解码图标，完成后在主线程回调，无法解码时回调null
+     */
+    static void load(final Resources res, final Key key, final Callback callback) {
+        TabExecutors.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = get(res, key);
+                TabExecutors.postToMain(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onIconLoaded(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 只读取图标的宽度，不解码像素，无法解码时返回-1
+     */
+    static int getIntrinsicWidth(Resources res, int resId) {
+        if (UNDECODABLE.contains(resId)) {
+            return -1;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+        return options.outWidth > 0 ? options.outWidth : -1;
+    }
+
+    static void clear() {
+        CACHE.evictAll();
+    }
+
+    /**
+     * 按2的幂降采样，解码后的高度不小于size
+     *
+     * @param size 目标高度，不大于0时按原尺寸解码
+     */
+    private static Bitmap decode(Resources res, int resId, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (size > 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeResource(res, resId, options);
+            if (options.outHeight <= 0) {
+                return null;
+            }
+            int sampleSize = 1;
+            while (options.outHeight / (sampleSize * 2) >= size) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+        }
+        return BitmapFactory.decodeResource(res, resId, options);
+    }
+
+    interface Callback {
+        void onIconLoaded(Key key, Bitmap bitmap);
+    }
+
+    static final class Key {
+        final int resId;
+        final int size;
+
+        private Key(int resId, int size) {
+            this.resId = resId;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return resId == other.resId && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * resId + size;
+        }
+    }
+}
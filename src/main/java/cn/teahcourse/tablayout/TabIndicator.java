@@ -0,0 +1,175 @@
+package cn.teahcourse.tablayout;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * 选中指示器的动画和绘制方式。
+ * <p>
+ * TabLayout先按指示器宽度规则算出当前Tab和下一个Tab下方的指示器范围，再交给TabIndicator
+ * 按滑动进度计算本帧的绘制范围并绘制。实现类在创建时分配好画笔、矩形和缓动曲线的查找表，
+ * 每帧只做少量浮点运算，不分配对象。计算和绘制都在主线程进行。
+ *
+ * <pre>
+ * tabLayout.setIndicator(TabIndicator.elastic());
+ * </pre>
+ */
+public abstract class TabIndicator {
+
+    protected final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * 指示器在两个Tab之间平移
+     */
+    public static TabIndicator linear() {
+        return new Linear();
+    }
+
+    /**
+     * 滑动方向上的前沿先移动、后沿后跟上，过程中指示器被拉长
+     */
+    public static TabIndicator elastic() {
+        return new Elastic();
+    }
+
+    /**
+     * 指示器不移动，旧位置淡出、新位置淡入
+     */
+    public static TabIndicator fade() {
+        return new Fade();
+    }
+
+    /**
+     * 圆角的胶囊形指示器，移动方式与elastic相同
+     */
+    public static TabIndicator pill() {
+        return new Pill();
+    }
+
+    /**
+     * 计算本帧的绘制范围，结果需要包含draw绘制的全部像素，用于局部重绘
+     *
+     * @param fromLeft  当前Tab的指示器左边界
+     * @param fromRight 当前Tab的指示器右边界
+     * @param toLeft    下一个Tab的指示器左边界，没有滑动时与from相同
+     * @param toRight   下一个Tab的指示器右边界
+     * @param fraction  滑动进度，0到1
+     * @param top       指示器上边界
+     * @param bottom    指示器下边界
+     * @param out       保存计算结果
+     */
+    protected abstract void computeBounds(float fromLeft, float fromRight, float toLeft, float toRight,
+                                          float fraction, float top, float bottom, RectF out);
+
+    /**
+     * 绘制最近一次computeBounds计算出的指示器
+     */
+    protected abstract void draw(Canvas canvas, RectF bounds, int color);
+
+    static float lerp(float from, float to, float fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    /**
+     * 预先采样的缓动曲线，取值时在相邻两个采样点之间线性插值
+     */
+    static final class Curve {
+        private static final int SAMPLES = 64;
+
+        static final Curve ACCELERATE = new Curve(false);
+        static final Curve DECELERATE = new Curve(true);
+
+        private final float[] values = new float[SAMPLES + 1];
+
+        private Curve(boolean decelerate) {
+            for (int i = 0; i <= SAMPLES; i++) {
+                double t = (double) i / SAMPLES;
+                values[i] = (float) (decelerate ? Math.sin(t * Math.PI / 2) : 1 - Math.cos(t * Math.PI / 2));
+            }
+        }
+
+        float get(float t) {
+            if (t <= 0f) {
+                return 0f;
+            }
+            if (t >= 1f) {
+                return 1f;
+            }
+            float position = t * SAMPLES;
+            int index = (int) position;
+            return lerp(values[index], values[index + 1], position - index);
+        }
+    }
+
+    private static class Linear extends TabIndicator {
+        @Override
+        protected void computeBounds(float fromLeft, float fromRight, float toLeft, float toRight,
+                                     float fraction, float top, float bottom, RectF out) {
+            out.set(lerp(fromLeft, toLeft, fraction), top, lerp(fromRight, toRight, fraction), bottom);
+        }
+
+        @Override
+        protected void draw(Canvas canvas, RectF bounds, int color) {
+            paint.setColor(color);
+            canvas.drawRect(bounds, paint);
+        }
+    }
+
+    private static class Elastic extends TabIndicator {
+        @Override
+        protected void computeBounds(float fromLeft, float fromRight, float toLeft, float toRight,
+                                     float fraction, float top, float bottom, RectF out) {
+            //向右滑动时右边界是前沿，向左时左边界是前沿
+            boolean forward = toLeft >= fromLeft;
+            float leading = Curve.DECELERATE.get(fraction);
+            float trailing = Curve.ACCELERATE.get(fraction);
+            out.set(lerp(fromLeft, toLeft, forward ? trailing : leading), top,
+                    lerp(fromRight, toRight, forward ? leading : trailing), bottom);
+        }
+
+        @Override
+        protected void draw(Canvas canvas, RectF bounds, int color) {
+            paint.setColor(color);
+            canvas.drawRect(bounds, paint);
+        }
+    }
+
+    private static class Pill extends Elastic {
+        @Override
+        protected void draw(Canvas canvas, RectF bounds, int color) {
+            paint.setColor(color);
+            float radius = bounds.height() / 2;
+            canvas.drawRoundRect(bounds, radius, radius, paint);
+        }
+    }
+
+    private static class Fade extends TabIndicator {
+        private final RectF from = new RectF();
+        private final RectF to = new RectF();
+        private float fraction;
+
+        @Override
+        protected void computeBounds(float fromLeft, float fromRight, float toLeft, float toRight,
+                                     float fraction, float top, float bottom, RectF out) {
+            from.set(fromLeft, top, fromRight, bottom);
+            to.set(toLeft, top, toRight, bottom);
+            this.fraction = fraction;
+            out.set(Math.min(fromLeft, toLeft), top, Math.max(fromRight, toRight), bottom);
+        }
+
+        @Override
+        protected void draw(Canvas canvas, RectF bounds, int color) {
+            int alpha = color >>> 24;
+            paint.setColor(color);
+            if (fraction < 1f) {
+                paint.setAlpha(Math.round(alpha * (1f - fraction)));
+                canvas.drawRect(from, paint);
+            }
+            if (fraction > 0f) {
+                paint.setAlpha(Math.round(alpha * fraction));
+                canvas.drawRect(to, paint);
+            }
+        }
+    }
+}
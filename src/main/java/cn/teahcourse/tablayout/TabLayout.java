@@ -17,45 +17,123 @@
 package cn.teahcourse.tablayout;
 
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.Paint.Style;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.os.TraceCompat;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.support.v4.view.ViewPager.OnPageChangeListener;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
-import android.util.Log;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewTreeObserver.OnGlobalLayoutListener;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
 import android.widget.HorizontalScrollView;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
+import android.widget.SectionIndexer;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Locale;
 
 
 public class TabLayout extends HorizontalScrollView {
-    private static final String TAG = "TabLayout";
+    //拖动时Tab行使用硬件层缓存，导航宽度超过视口的这个倍数时层太大，不再使用
+    private static final int MAX_TAB_LAYER_VIEWPORTS = 3;
+
+    //异步绑定时后台线程每次处理的Tab数量
+    private static final int ASYNC_BIND_CHUNK = 64;
+    //平滑滚动的最长时间，距离越短用时越短
+    private static final int MAX_SMOOTH_SCROLL_DURATION = 250;
+
+    //滑动渐变的颜色表分段数，查表代替逐帧按通道插值
+    private static final int CROSSFADE_STEPS = 64;
+
+    //超过这个数的角标显示为"99+"
+    private static final int MAX_BADGE_COUNT = 99;
+    //角标文字，0位置不使用，绘制时不再拼接字符串
+    private static final String[] BADGE_LABELS = new String[MAX_BADGE_COUNT + 2];
+
+    static {
+        for (int i = 1; i <= MAX_BADGE_COUNT; i++) {
+            BADGE_LABELS[i] = String.valueOf(i);
+        }
+        BADGE_LABELS[MAX_BADGE_COUNT + 1] = MAX_BADGE_COUNT + "+";
+    }
+
+    //切换过程中分隔线的渐变色
+    private static final int[] GRADIENT_COLORS = new int[]{Color.GREEN, Color.TRANSPARENT};
 
     public interface IconTabProvider {
         int getPageIconResId(int position);
     }
 
-    // @formatter:off
-    private static final int[] ATTRS = new int[]{android.R.attr.textSize,
-            android.R.attr.textColor};
-    // @formatter:on
+    /**
+     * 异步绑定的结果回调，均在主线程执行
+     */
+    public interface OnTabsBoundListener {
+        /**
+         * 全部Tab的标题或图标已经读取并测量完成
+         */
+        void onTabsBound(int tabCount);
+
+        /**
+         * 异步绑定在完成前被取消，例如重新绑定Adapter或TabLayout从窗口移除
+         */
+        void onTabsBindCancelled();
+    }
+
+    /**
+     * 运行时性能数据回调，均在主线程执行，参数都是基本类型，回调本身不分配对象。
+     * 没有设置监听时不做任何计时
+     */
+    public interface MetricsListener {
+        /**
+         * 完成了一次Tab构建或增量更新，包括绑定ViewPager、切换模式和重新添加到窗口时的重建。
+         * 异步绑定在全部Tab发布后回调一次
+         *
+         * @param tabCount      更新后的Tab数量
+         * @param durationNanos 耗时，异步绑定时只包含主线程上的部分
+         */
+        void onTabsBuilt(int tabCount, long durationNanos);
+
+        /**
+         * 导航完成了一帧绘制
+         *
+         * @param drawNanos       onDraw的耗时，不包含子View
+         * @param scrollCallbacks 上一帧以来收到的onPageScrolled次数
+         * @param restyledTabs    上一帧以来重新设置全部样式的Tab数量
+         * @param liveTabViews    当前存在的Tab View数量
+         */
+        void onFrameDrawn(long drawNanos, int scrollCallbacks, int restyledTabs, int liveTabViews);
+    }
 
     private LinearLayout.LayoutParams defaultTabLayoutParams;
     private LinearLayout.LayoutParams expandedTabLayoutParams;
@@ -63,10 +141,67 @@ public class TabLayout extends HorizontalScrollView {
     private final PageListener pageListener = new PageListener();
     public OnPageChangeListener delegatePageListener;
 
-    private LinearLayout tabsContainer;
+    private TabStrip tabsContainer;
     private ViewPager pager;
 
+    //监听Adapter的变化，同一帧内的多次变化合并为一次增量更新
+    private PagerAdapter observedAdapter;
+    private boolean adapterUpdatePending = false;
+    //从窗口移除期间不监听Adapter，重新添加时需要补上这段时间的变化
+    private boolean adapterChangesMissed = false;
+    private final DataSetObserver adapterObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            scheduleAdapterUpdate();
+        }
+
+        @Override
+        public void onInvalidated() {
+            scheduleAdapterUpdate();
+        }
+    };
+    //ViewPager更换Adapter后把监听转移到新的Adapter，并按新的内容更新导航
+    private final ViewPager.OnAdapterChangeListener adapterChangeListener = new ViewPager.OnAdapterChangeListener() {
+        @Override
+        public void onAdapterChanged(ViewPager viewPager, PagerAdapter oldAdapter, PagerAdapter newAdapter) {
+            if (viewPager != pager) {
+                return;
+            }
+            //Adapter被移除时直接清空导航，重新添加到窗口时也不需要更新
+            if (newAdapter == null) {
+                stopObservingAdapter();
+                clearTabs();
+                adapterChangesMissed = false;
+                return;
+            }
+            //移除窗口期间不监听，重新添加到窗口时统一更新
+            if (!ViewCompat.isAttachedToWindow(TabLayout.this)) {
+                adapterChangesMissed = true;
+                return;
+            }
+            observeAdapter();
+            notifyDataSetChanged();
+        }
+    };
+    private final Runnable adapterUpdate = new Runnable() {
+        @Override
+        public void run() {
+            adapterUpdatePending = false;
+            if (pager != null) {
+                observeAdapter();
+                notifyDataSetChanged();
+            }
+        }
+    };
+
     private int tabCount;
+    private boolean iconTabs = false;
+    private String[] tabTitles = new String[0];
+    private int[] tabIconResIds = new int[0];
+    //增量更新时保存上一次的内容用于比对，与tabTitles/tabIconResIds轮换使用
+    private String[] spareTabTitles = new String[0];
+    private int[] spareTabIconResIds = new int[0];
+    private boolean tabsBound = false;
 
     private int currentPosition = 0;
     private int selectedPosition = 0;
@@ -81,6 +216,9 @@ public class TabLayout extends HorizontalScrollView {
 
     private boolean shouldExpand = false;
     private boolean textAllCaps = true;
+    private boolean virtualized = false;
+    private boolean flatText = false;
+    private boolean asyncBinding = false;
 
     private int scrollOffset = 52;
     private int indicatorHeight = 4;
@@ -94,7 +232,6 @@ public class TabLayout extends HorizontalScrollView {
     private int textColor = 0xFF666666;
     private int textColorSelected = 0xFF666666;
     private int tabBackgroundResId = R.drawable.background_tab;
-    private int lastScrollX = 0;
 
     private Typeface tabTypeface = null;
     private int tabTypefaceStyle = Typeface.NORMAL;
@@ -103,6 +240,125 @@ public class TabLayout extends HorizontalScrollView {
 
     private Shader mShader;
 
+    private final ScrollScheduler scrollScheduler = new ScrollScheduler();
+    private int pagerScrollState = ViewPager.SCROLL_STATE_IDLE;
+
+    //异步绑定：标题读取、大小写转换和测量在后台线程分块完成，主线程按块发布
+    private volatile int asyncBindGeneration = 0;
+    private boolean asyncBindRunning = false;
+    private boolean asyncBindIncomplete = false;
+    private boolean[] tabLoaded = new boolean[0];
+    private OnTabsBoundListener onTabsBoundListener;
+    //异步绑定到目前为止在主线程上的耗时，全部发布后回调
+    private long asyncBindNanos;
+
+    //性能统计，两帧之间累计，绘制时回调后清零
+    private MetricsListener metricsListener;
+    private int scrollCallbacksSinceFrame = 0;
+    private int restyledTabsSinceFrame = 0;
+    private TabEventRecorder eventRecorder;
+
+    //扁平文字模式：不创建子View，标题直接绘制在onDraw中，点击通过坐标命中测试
+    private TextPaint flatTextPaint;
+    private final int touchSlop;
+    private float flatDownX;
+    private float flatDownY;
+    private boolean flatTapCandidate = false;
+
+    //分隔线端点，drawLines批量绘制，只在可见分隔线数量变多时扩容
+    private float[] dividerPoints = new float[0];
+
+    //指示器当前位置和上一次绘制的范围，滑动时只重绘两者的并集
+    private final RectF indicatorRect = new RectF();
+    private final Rect drawnIndicatorBounds = new Rect();
+    private final Rect indicatorDirty = new Rect();
+    private TabIndicator indicator = TabIndicator.linear();
+    private float indicatorSpanLeft;
+    private float indicatorSpanRight;
+
+    //快速滚动滑块：按总宽度和视口的比例直接换算滚动位置，跳过的Tab不测量也不创建
+    private boolean fastScrollEnabled = false;
+    private Paint fastScrollPaint;
+    private int fastScrollMinThumbWidth;
+    private final RectF fastScrollThumb = new RectF();
+    private boolean fastScrollDragging = false;
+    private float fastScrollDownX;
+    private float fastScrollDownThumbLeft;
+    //几何信息就绪前请求的跳转，在下一次布局后执行
+    private int pendingScrollTab = -1;
+
+    //滑动时文字颜色和缩放在当前Tab与下一个Tab之间渐变，颜色查表，缩放在绘制时作用于画布
+    private boolean textCrossfade = false;
+    private float selectedTextScale = 1f;
+    private final int[] crossfadeColors = new int[CROSSFADE_STEPS + 1];
+    private int crossfadeFromColor;
+    private int crossfadeToColor;
+    private boolean crossfadeColorsValid = false;
+    private TextPaint crossfadeTextPaint;
+
+    //角标：任意线程写入pendingBadges，主线程每帧合并一次到badges后只重绘变化的Tab
+    private final Object badgeLock = new Object();
+    private final SparseIntArray pendingBadges = new SparseIntArray();
+    private boolean badgeUpdatePosted = false;
+    private SparseIntArray badges = new SparseIntArray();
+    //插入、删除Tab时平移角标使用，与badges轮换
+    private SparseIntArray spareBadges = new SparseIntArray();
+    //主线程在锁内复制出的待生效角标，释放锁后再合并和重绘
+    private final SparseIntArray applyingBadges = new SparseIntArray();
+    private Paint badgePaint;
+    private TextPaint badgeTextPaint;
+    private final RectF badgeRect = new RectF();
+    //其他线程先切换到主线程，再等到下一帧合并，同一帧内的修改只生效一次
+    private final Runnable badgeHop = new Runnable() {
+        @Override
+        public void run() {
+            scheduleBadgeUpdate();
+        }
+    };
+    private final Runnable badgeUpdate = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingBadges();
+        }
+    };
+    //Choreographer.FrameCallback只在API 16以上存在，用到时才创建
+    private Object badgeFrameCallback;
+
+    //虚拟化模式：只保留视口附近的Tab，其余位置只记录宽度
+    private SparseArray<View> activeTabs = new SparseArray<View>();
+    private SparseArray<View> scratchTabs = new SparseArray<View>();
+    private final ArrayList<View> textTabScrap = new ArrayList<View>();
+    private final ArrayList<View> iconTabScrap = new ArrayList<View>();
+    //多个TabLayout共享的缓存池，不再需要的Tab放回池中
+    private TabViewPool tabViewPool;
+    private TabViewStyle tabViewStyle;
+    private boolean tabsReleased = false;
+    private final SparseIntArray iconWidths = new SparseIntArray();
+    //上一次绑定图标时使用的解码尺寸，尺寸变化后重新绑定
+    private int boundIconSize = -1;
+    //高度确定前绑定的图标没有解码，尺寸确定后再绑定
+    private boolean iconBindDeferred = false;
+    private int[] virtualTabWidths = new int[0];
+    //实际显示的标题（已按textAllCaps转换），与virtualTabWidths一起测量
+    private String[] tabLabels = new String[0];
+    private boolean virtualGeometryDirty = true;
+    private int virtualViewportWidth = -1;
+    private TextPaint measurePaint;
+    private TextWidthCache.Style measureStyle;
+
+    //下一次布局完成后滚动到当前Tab，恢复状态时Tab内容和宽度不变则直接恢复保存的滚动位置
+    private boolean scrollToCurrentPending = false;
+    private int restoredScrollX = -1;
+    private int restoredFingerprint;
+    private int restoredTotalWidth;
+
+    private final OnClickListener tabClickListener = new OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            pager.setCurrentItem(tabsContainer.positionOf(v));
+        }
+    };
+
     public TabLayout(Context context) {
         this(context, null);
     }
@@ -117,8 +373,7 @@ public class TabLayout extends HorizontalScrollView {
         setFillViewport(true);
         setWillNotDraw(false);
 
-        tabsContainer = new LinearLayout(context);
-        tabsContainer.setOrientation(LinearLayout.HORIZONTAL);
+        tabsContainer = new TabStrip(context);
         tabsContainer.setLayoutParams(new LayoutParams(
                 LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
         addView(tabsContainer);
@@ -142,96 +397,41 @@ public class TabLayout extends HorizontalScrollView {
         if (locale == null) {
             locale = getResources().getConfiguration().locale;
         }
+
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
     }
 
     private void init(Context context, AttributeSet attrs) {
-        //解析默认属性值
-        DisplayMetrics dm = getResources().getDisplayMetrics();
-
-        scrollOffset = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, scrollOffset, dm);
-        indicatorHeight = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, indicatorHeight, dm);
-        underlineHeight = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, underlineHeight, dm);
-        dividerPadding = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, dividerPadding, dm);
-        tabPadding = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, tabPadding, dm);
-        dividerWidth = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_DIP, dividerWidth, dm);
-        textSize = (int) TypedValue.applyDimension(
-                TypedValue.COMPLEX_UNIT_SP, textSize, dm);
-        initSystemAttr(context, attrs);
-
-        initCustomAttr(context, attrs);
-
-    }
-
-    private void initSystemAttr(Context context, AttributeSet attrs) {
-        // get system attrs (android:textSize and android:textColor)
-
-        TypedArray a = context.obtainStyledAttributes(attrs, ATTRS);
-        //获取系统属性android:textColor/android:textSize文件属性值
-        textSize = a.getDimensionPixelSize(0, textSize);
-        textColor = a.getColor(1, textColor);
-
-        a.recycle();
-    }
-
-    private void initCustomAttr(Context context, AttributeSet attrs) {
-        TypedArray a;// get custom attrs
-
-        a = context.obtainStyledAttributes(attrs,
-                R.styleable.TabLayout);
-        //获取自定义属性配置文件字段
-        indicatorColor = a.getColor(
-                R.styleable.TabLayout_tab_indicator_color,
-                indicatorColor);
-        underlineColor = a.getColor(
-                R.styleable.TabLayout_tab_underline_color,
-                underlineColor);
-        dividerColor = a
-                .getColor(R.styleable.TabLayout_tab_divider_color,
-                        dividerColor);
-        indicatorHeight = a.getDimensionPixelSize(
-                R.styleable.TabLayout_tab_indicator_height,
-                indicatorHeight);
-        indicatorWidth = a.getDimensionPixelSize(
-                R.styleable.TabLayout_tab_indicator_width,
-                indicatorWidth);
-        underlineHeight = a.getDimensionPixelSize(
-                R.styleable.TabLayout_tab_underline_height,
-                underlineHeight);
-        dividerPadding = a.getDimensionPixelSize(
-                R.styleable.TabLayout_tab_divider_padding,
-                dividerPadding);
-        tabPadding = a.getDimensionPixelSize(
-                R.styleable.TabLayout_tab_padding_left_to_right,
-                tabPadding);
-        tabBackgroundResId = a.getResourceId(
-                R.styleable.TabLayout_tab_background,
-                tabBackgroundResId);
-        shouldExpand = a
-                .getBoolean(R.styleable.TabLayout_tab_should_expand,
-                        shouldExpand);
-        scrollOffset = a
-                .getDimensionPixelSize(
-                        R.styleable.TabLayout_tab_scroll_offset,
-                        scrollOffset);
-        textAllCaps = a.getBoolean(
-                R.styleable.TabLayout_tab_text_all_caps, textAllCaps);
-        textColorSelected = a.getColor(R.styleable.TabLayout_tab_text_color_selected,
-                textColorSelected);
-        textColor=a.getColor(R.styleable.TabLayout_tab_text_color,
-                textColor);
-        textSize=a.getDimensionPixelSize(R.styleable.TabLayout_tab_text_color,
-                textSize);
-
-        a.recycle();
+        //相同主题和属性的解析结果在多个TabLayout之间共享
+        TabStyle style = TabStyle.resolve(context, attrs);
+
+        indicatorColor = style.indicatorColor;
+        underlineColor = style.underlineColor;
+        dividerColor = style.dividerColor;
+
+        shouldExpand = style.shouldExpand;
+        textAllCaps = style.textAllCaps;
+        virtualized = style.virtualized;
+        flatText = style.flatText;
+
+        scrollOffset = style.scrollOffset;
+        indicatorHeight = style.indicatorHeight;
+        underlineHeight = style.underlineHeight;
+        indicatorWidth = style.indicatorWidth;
+        dividerPadding = style.dividerPadding;
+        tabPadding = style.tabPadding;
+        dividerWidth = style.dividerWidth;
+
+        textSize = style.textSize;
+        textColor = style.textColor;
+        textColorSelected = style.textColorSelected;
+        tabBackgroundResId = style.tabBackgroundResId;
     }
 
     public void setViewPager(ViewPager pager) {
+        if (this.pager != null) {
+            this.pager.removeOnAdapterChangeListener(adapterChangeListener);
+        }
         this.pager = pager;
 
         if (pager.getAdapter() == null) {
@@ -240,8 +440,43 @@ public class TabLayout extends HorizontalScrollView {
         }
 
         pager.setOnPageChangeListener(pageListener);
+        pager.addOnAdapterChangeListener(adapterChangeListener);
+        observeAdapter();
+
+        rebuildTabs();
+    }
+
+    /**
+     * 在ViewPager当前的Adapter上注册监听，已经监听其他Adapter时先取消
+     */
+    private void observeAdapter() {
+        PagerAdapter adapter = pager == null ? null : pager.getAdapter();
+        if (adapter == observedAdapter) {
+            return;
+        }
+        stopObservingAdapter();
+        if (adapter != null) {
+            adapter.registerDataSetObserver(adapterObserver);
+            observedAdapter = adapter;
+        }
+    }
+
+    private void stopObservingAdapter() {
+        if (observedAdapter != null) {
+            observedAdapter.unregisterDataSetObserver(adapterObserver);
+            observedAdapter = null;
+        }
+        if (adapterUpdatePending) {
+            removeCallbacks(adapterUpdate);
+            adapterUpdatePending = false;
+        }
+    }
 
-        notifyDataSetChanged();
+    private void scheduleAdapterUpdate() {
+        if (!adapterUpdatePending) {
+            adapterUpdatePending = true;
+            ViewCompat.postOnAnimation(this, adapterUpdate);
+        }
     }
 
     public void setOnPageChangeListener(OnPageChangeListener listener) {
@@ -249,135 +484,2027 @@ public class TabLayout extends HorizontalScrollView {
     }
 
 
-    public void notifyDataSetChanged() {
+    /**
+     * 开启虚拟化模式，只创建视口附近的Tab并在滚动时回收复用，
+     * 适合页数成千上万的Adapter
+     *
+     * @param virtualized
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (this.virtualized == virtualized) {
+            return;
+        }
+        this.virtualized = virtualized;
+        if (pager != null) {
+            rebuildTabs();
+        }
+    }
 
-        tabsContainer.removeAllViews();
+    public boolean isVirtualized() {
+        return virtualized;
+    }
 
-        tabCount = pager.getAdapter().getCount();
+    /**
+     * 开启扁平文字模式，文字Tab不再创建TextView，由TabLayout统一测量并直接绘制标题，
+     * 点击通过坐标命中测试切换页面。该模式不绘制tabBackgroundResId，图标Adapter不受影响
+     *
+     * @param flatText
+     */
+    public void setFlatText(boolean flatText) {
+        if (this.flatText == flatText) {
+            return;
+        }
+        this.flatText = flatText;
+        if (pager != null) {
+            rebuildTabs();
+        }
+    }
 
-        for (int i = 0; i < tabCount; i++) {
+    public boolean isFlatText() {
+        return flatText;
+    }
 
-            if (pager.getAdapter() instanceof IconTabProvider) {
-                addIconTab(i, ((IconTabProvider) pager.getAdapter()).getPageIconResId(i));
-            } else {
-                addTextTab(i, pager.getAdapter().getPageTitle(i).toString());
+    /**
+     * 开启异步绑定，重新绑定Adapter时标题读取、大小写转换和测量在后台线程分块执行，
+     * 当前页附近的Tab优先发布，未完成的Tab先显示占位条。开启后按虚拟化方式布局，
+     * Adapter的getPageTitle/getPageIconResId需要能在后台线程调用
+     *
+     * @param asyncBinding
+     */
+    public void setAsyncBinding(boolean asyncBinding) {
+        if (this.asyncBinding == asyncBinding) {
+            return;
+        }
+        this.asyncBinding = asyncBinding;
+        if (pager != null) {
+            rebuildTabs();
+        }
+    }
+
+    public boolean isAsyncBinding() {
+        return asyncBinding;
+    }
+
+    public void setOnTabsBoundListener(OnTabsBoundListener listener) {
+        this.onTabsBoundListener = listener;
+    }
+
+    /**
+     * 设置页面事件记录器，为null时不记录
+     */
+    public void setEventRecorder(TabEventRecorder recorder) {
+        this.eventRecorder = recorder;
+    }
+
+    /**
+     * 设置性能数据回调，为null时关闭统计
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        this.metricsListener = listener;
+        scrollCallbacksSinceFrame = 0;
+        restyledTabsSinceFrame = 0;
+    }
+
+    /**
+     * 取消正在进行的异步绑定，已经发布的Tab保留，再次绑定或重新添加到窗口时重新开始
+     */
+    public void cancelAsyncBinding() {
+        asyncBindGeneration++;
+        if (asyncBindRunning) {
+            asyncBindRunning = false;
+            if (onTabsBoundListener != null) {
+                onTabsBoundListener.onTabsBindCancelled();
             }
+        }
+    }
 
+    /**
+     * 设置与其他TabLayout共享的Tab缓存池，重新绑定或从窗口移除时Tab放回池中，
+     * 创建Tab时优先从池中复用
+     *
+     * @param pool 为null时不使用缓存池
+     */
+    public void setTabViewPool(TabViewPool pool) {
+        this.tabViewPool = pool;
+    }
+
+    public TabViewPool getTabViewPool() {
+        return tabViewPool;
+    }
+
+    /**
+     * 设置选中指示器的动画和绘制方式，默认为{@link TabIndicator#linear()}
+     */
+    public void setIndicator(TabIndicator indicator) {
+        this.indicator = indicator;
+        invalidate();
+    }
+
+    public TabIndicator getIndicator() {
+        return indicator;
+    }
+
+    /**
+     * 直接滚动到position对应的Tab，不改变选中的页面。位置由缓存的宽度表计算，
+     * 虚拟化模式下只创建目标位置附近的Tab
+     *
+     * @param position
+     * @param animate  是否平滑滚动
+     */
+    public void scrollToTab(int position, boolean animate) {
+        if (position < 0 || position >= tabCount) {
+            return;
+        }
+        if (!hasTabGeometry()) {
+            pendingScrollTab = position;
+            return;
+        }
+        int x = getScrollXForChild(position, 0);
+        if (animate) {
+            scrollScheduler.smoothScrollTo(x);
+        } else {
+            scrollScheduler.jumpTo(x);
+        }
+    }
+
+    /**
+     * Adapter实现了{@link SectionIndexer}时，滚动到分组的第一个Tab
+     */
+    public void scrollToSection(int section, boolean animate) {
+        if (pager != null && pager.getAdapter() instanceof SectionIndexer) {
+            scrollToTab(((SectionIndexer) pager.getAdapter()).getPositionForSection(section), animate);
+        }
+    }
+
+    /**
+     * 视口中第一个可见的Tab，二分查找宽度表，Tab还未布局时返回-1
+     */
+    public int getFirstVisibleTab() {
+        if (tabCount == 0 || !hasTabGeometry()) {
+            return -1;
         }
+        return tabsContainer.findTabAt(getScrollX());
+    }
 
-        updateTabStyles();
+    /**
+     * 视口中最后一个可见的Tab，Tab还未布局时返回-1
+     */
+    public int getLastVisibleTab() {
+        if (tabCount == 0 || !hasTabGeometry()) {
+            return -1;
+        }
+        return tabsContainer.findTabAt(getScrollX() + getWidth() - getPaddingLeft() - getPaddingRight() - 1);
+    }
 
-        getViewTreeObserver().addOnGlobalLayoutListener(
-                new OnGlobalLayoutListener() {
+    /**
+     * 设置position处Tab右上角的角标数字，可以在任意线程调用。主线程处理前的多次修改合并后
+     * 一起生效，角标直接绘制在导航上，不会引起重新布局。
+     * <p>
+     * 角标跟随位置：插入、删除Tab后其后的角标随之平移，被删除的Tab的角标一起移除。
+     * 其他线程设置的位置按生效时的Tab计算
+     *
+     * @param position
+     * @param count    不大于0时移除角标
+     */
+    public void setBadge(int position, int count) {
+        synchronized (badgeLock) {
+            pendingBadges.put(position, Math.max(0, count));
+            if (badgeUpdatePosted) {
+                return;
+            }
+            badgeUpdatePosted = true;
+        }
+        //postOnAnimation在未添加到窗口时可能丢失任务，先经主线程Handler切换线程再按帧调度
+        TabExecutors.postToMain(badgeHop);
+    }
 
+    /**
+     * 主线程调用，在下一帧合并待生效的角标。添加到窗口时随动画回调执行，
+     * 否则直接使用Choreographer的帧回调
+     */
+    private void scheduleBadgeUpdate() {
+        if (ViewCompat.isAttachedToWindow(this)) {
+            ViewCompat.postOnAnimation(this, badgeUpdate);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (badgeFrameCallback == null) {
+                badgeFrameCallback = new Choreographer.FrameCallback() {
                     @Override
-                    public void onGlobalLayout() {
-                        getViewTreeObserver().removeGlobalOnLayoutListener(this);
-                        currentPosition = pager.getCurrentItem();
-                        scrollToChild(currentPosition, 0);
+                    public void doFrame(long frameTimeNanos) {
+                        applyPendingBadges();
                     }
-                });
+                };
+            }
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) badgeFrameCallback);
+        } else {
+            applyPendingBadges();
+        }
+    }
+
+    /**
+     * 主线程调用，返回已经生效的角标数字，没有角标时返回0
+     */
+    public int getBadge(int position) {
+        return badges.get(position);
+    }
 
+    /**
+     * 移除全部角标，需要在主线程调用
+     */
+    public void clearBadges() {
+        synchronized (badgeLock) {
+            pendingBadges.clear();
+        }
+        badges.clear();
+        invalidate();
     }
 
-    private void addTextTab(final int position, String title) {
-        TextView tab = new TextView(getContext());
-        tab.setText(title);
-        tab.setGravity(Gravity.CENTER);
-        tab.setSingleLine();
-        addTab(position, tab);
+    private void applyPendingBadges() {
+        //锁内只复制，重绘不占用锁，其他线程的setBadge不会等待主线程
+        synchronized (badgeLock) {
+            badgeUpdatePosted = false;
+            for (int i = 0; i < pendingBadges.size(); i++) {
+                applyingBadges.put(pendingBadges.keyAt(i), pendingBadges.valueAt(i));
+            }
+            pendingBadges.clear();
+        }
+        for (int i = 0; i < applyingBadges.size(); i++) {
+            int position = applyingBadges.keyAt(i);
+            int count = applyingBadges.valueAt(i);
+            if (badges.get(position) == count) {
+                continue;
+            }
+            if (count > 0) {
+                badges.put(position, count);
+            } else {
+                badges.delete(position);
+            }
+            invalidateTab(position);
+        }
+        applyingBadges.clear();
     }
 
-    private void addIconTab(final int position, int resId) {
-        ImageButton tab = new ImageButton(getContext());
-        tab.setImageResource(resId);
+    /**
+     * 滑动时文字颜色按滑动进度在textColor和textColorSelected之间渐变，
+     * 不再在onPageSelected时突变。开启后标题由导航在绘制时查表着色，滑动过程中不修改Tab View
+     */
+    public void setTextCrossfadeEnabled(boolean enabled) {
+        if (textCrossfade == enabled) {
+            return;
+        }
+        textCrossfade = enabled;
+        refreshTabTextDrawing();
+    }
 
-        addTab(position, tab);
+    public boolean isTextCrossfadeEnabled() {
+        return textCrossfade;
     }
 
-    private void addTab(final int position, View tab) {
-        tab.setFocusable(true);
-        tab.setOnClickListener(new OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                pager.setCurrentItem(position);
-            }
-        });
+    /**
+     * 选中Tab的缩放比例，开启渐变时文字按滑动进度缩放，只在绘制时作用于画布，不修改Tab View，也不重新布局
+     *
+     * @param scale 1为不缩放
+     */
+    public void setSelectedTextScale(float scale) {
+        if (selectedTextScale == scale) {
+            return;
+        }
+        selectedTextScale = scale;
+        updateTabScale();
+        invalidate();
+    }
 
-        tab.setPadding(tabPadding, 0, tabPadding, 0);
-        tabsContainer
-                .addView(tab, position, shouldExpand ? expandedTabLayoutParams
-                        : defaultTabLayoutParams);
+    public float getSelectedTextScale() {
+        return selectedTextScale;
+    }
+
+    /**
+     * 显示快速滚动滑块，导航总宽度超过视口时在顶部绘制，拖动滑块按比例滚动整条导航
+     */
+    public void setFastScrollEnabled(boolean enabled) {
+        this.fastScrollEnabled = enabled;
+        if (enabled && fastScrollPaint == null) {
+            fastScrollPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            fastScrollMinThumbWidth = (int) TypedValue.applyDimension(
+                    TypedValue.COMPLEX_UNIT_DIP, 32, getResources().getDisplayMetrics());
+        }
+        fastScrollDragging = false;
+        invalidate();
     }
 
-    private void updateTabStyles() {
+    public boolean isFastScrollEnabled() {
+        return fastScrollEnabled;
+    }
 
-        for (int i = 0; i < tabCount; i++) {
+    /**
+     * 开始修改已经显示的导航的样式，全部修改在{@link StyleEditor#apply()}时一次生效：
+     * 只遍历一次Tab，最多请求一次布局和一次重绘，只影响绘制的修改不请求布局
+     *
+     * <pre>
+     * tabLayout.editStyle()
+     *         .setTextColor(Color.GRAY)
+     *         .setIndicatorHeight(6)
+     *         .setTypeface(Typeface.DEFAULT_BOLD, Typeface.NORMAL)
+     *         .apply();
+     * </pre>
+     */
+    public StyleEditor editStyle() {
+        return new StyleEditor();
+    }
+
+    /**
+     * 当前是否按扁平文字模式绘制
+     */
+    private boolean drawsFlatText() {
+        return flatText && !iconTabs;
+    }
 
-            View v = tabsContainer.getChildAt(i);
+    /**
+     * Tab位置是否由测量得到的宽度表决定，而不是由子View布局决定
+     */
+    private boolean usesWidthTable() {
+        return virtualized || drawsFlatText() || asyncBinding;
+    }
+
+    /**
+     * Adapter内容变化后刷新导航，与上一次的标题或图标逐项比对，
+     * 只插入、删除、移动或重新绑定发生变化的Tab
+     */
+    public void notifyDataSetChanged() {
+        if (adapterUpdatePending) {
+            removeCallbacks(adapterUpdate);
+            adapterUpdatePending = false;
+        }
+        updateTabs();
+    }
+
+    private void updateTabs() {
+        if (pager.getAdapter() == null || !canUpdateIncrementally()) {
+            rebuildTabs();
+            return;
+        }
+        TraceCompat.beginSection("TabLayout#updateTabs");
+        long start = startBuildTiming();
+        diffTabs();
+        reportTabsBuilt(start);
+        TraceCompat.endSection();
+    }
+
+    /**
+     * 与上一次的标题或图标比对，只处理首尾相同部分之间的区间
+     */
+    private void diffTabs() {
+        String[] oldTitles = tabTitles;
+        int[] oldIconResIds = tabIconResIds;
+        int oldCount = tabCount;
+        tabTitles = spareTabTitles;
+        tabIconResIds = spareTabIconResIds;
+        spareTabTitles = oldTitles;
+        spareTabIconResIds = oldIconResIds;
+
+        tabCount = pager.getAdapter().getCount();
+        loadTabContents();
+
+        //跳过首尾相同的部分，只处理中间变化的区间
+        int start = 0;
+        int minCount = Math.min(oldCount, tabCount);
+        while (start < minCount && isSameTab(oldTitles, oldIconResIds, start, start)) {
+            start++;
+        }
+        int oldEnd = oldCount;
+        int newEnd = tabCount;
+        while (oldEnd > start && newEnd > start
+                && isSameTab(oldTitles, oldIconResIds, oldEnd - 1, newEnd - 1)) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        if (oldEnd == start && newEnd == start) {
+            return;
+        }
+        applyTabChanges(start, oldEnd - start, newEnd - start, oldTitles, oldIconResIds);
+    }
+
+    /**
+     * Adapter在positionStart处插入了itemCount页，跳过比对直接插入对应的Tab
+     */
+    public void notifyTabsInserted(int positionStart, int itemCount) {
+        notifyTabRangeChanged(positionStart, 0, itemCount);
+    }
+
+    /**
+     * Adapter从positionStart处删除了itemCount页，跳过比对直接删除对应的Tab
+     */
+    public void notifyTabsRemoved(int positionStart, int itemCount) {
+        notifyTabRangeChanged(positionStart, itemCount, 0);
+    }
+
+    /**
+     * Adapter从positionStart起的itemCount页标题或图标发生变化，只重新绑定这些Tab
+     */
+    public void notifyTabsChanged(int positionStart, int itemCount) {
+        notifyTabRangeChanged(positionStart, itemCount, itemCount);
+    }
+
+    private void notifyTabRangeChanged(int start, int removeCount, int insertCount) {
+        if (pager.getAdapter() == null || !canUpdateIncrementally()) {
+            rebuildTabs();
+            return;
+        }
+        if (start < 0 || removeCount < 0 || insertCount < 0 || start + removeCount > tabCount) {
+            throw new IndexOutOfBoundsException("Invalid tab range: start " + start
+                    + ", count " + removeCount + ", tabCount " + tabCount);
+        }
+        int newCount = tabCount - removeCount + insertCount;
+        if (pager.getAdapter().getCount() != newCount) {
+            throw new IllegalStateException("Adapter count " + pager.getAdapter().getCount()
+                    + " does not match expected tab count " + newCount);
+        }
+        if (removeCount == 0 && insertCount == 0) {
+            return;
+        }
+
+        TraceCompat.beginSection("TabLayout#updateTabs");
+        long startNanos = startBuildTiming();
+        ensureTabContentCapacity(newCount);
+        int tailCount = tabCount - start - removeCount;
+        if (iconTabs) {
+            System.arraycopy(tabIconResIds, start + removeCount,
+                    tabIconResIds, start + insertCount, tailCount);
+        } else {
+            System.arraycopy(tabTitles, start + removeCount,
+                    tabTitles, start + insertCount, tailCount);
+        }
+        tabCount = newCount;
+        loadTabContents(start, insertCount);
+
+        applyTabChanges(start, removeCount, insertCount, null, null);
+        reportTabsBuilt(startNanos);
+        TraceCompat.endSection();
+    }
 
-            v.setBackgroundResource(tabBackgroundResId);
+    /**
+     * 开始一次构建的计时，没有设置性能回调时返回-1，不读取时间
+     */
+    private long startBuildTiming() {
+        return metricsListener == null ? -1 : System.nanoTime();
+    }
+
+    /**
+     * 回调构建耗时。异步绑定还在进行时只累计主线程上的耗时，全部发布后一起回调
+     */
+    private void reportTabsBuilt(long startNanos) {
+        if (startNanos < 0 || metricsListener == null) {
+            return;
+        }
+        long duration = System.nanoTime() - startNanos;
+        if (asyncBindRunning) {
+            asyncBindNanos += duration;
+        } else {
+            metricsListener.onTabsBuilt(tabCount, duration);
+        }
+    }
+
+    private boolean canUpdateIncrementally() {
+        return tabsBound && !asyncBindIncomplete
+                && iconTabs == (pager.getAdapter() instanceof IconTabProvider)
+                && tabsContainer.isVirtualized() == usesWidthTable();
+    }
 
-            if (v instanceof TextView) {
+    private boolean isSameTab(String[] oldTitles, int[] oldIconResIds, int oldPosition, int newPosition) {
+        if (iconTabs) {
+            return oldIconResIds[oldPosition] == tabIconResIds[newPosition];
+        }
+        return oldTitles[oldPosition].equals(tabTitles[newPosition]);
+    }
 
-                TextView tab = (TextView) v;
-                tab.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
-                tab.setTypeface(tabTypeface, tabTypefaceStyle);
-                tab.setTextColor(textColor);
+    /**
+     * 把[start, start + removeCount)区间的旧Tab替换为[start, start + insertCount)区间的新内容，
+     * 调用前tabCount和标题/图标缓存已经是新的内容
+     *
+     * @param oldTitles     不为null时按内容匹配旧Tab，内容相同的直接移动而不重新绑定
+     * @param oldIconResIds
+     */
+    private void applyTabChanges(int start, int removeCount, int insertCount,
+                                 String[] oldTitles, int[] oldIconResIds) {
+        View previousSelected = getTabView(selectedPosition);
+
+        if (tabsContainer.isVirtualized()) {
+            updateVirtualTabs(start, removeCount, insertCount);
+        } else {
+            updateTabViews(start, removeCount, insertCount, oldTitles, oldIconResIds);
+        }
+
+        shiftBadges(start, removeCount, insertCount);
+
+        int lastPosition = Math.max(0, tabCount - 1);
+        currentPosition = Math.min(currentPosition, lastPosition);
+        selectedPosition = Math.min(selectedPosition, lastPosition);
+        refreshSelectedTab(previousSelected);
+
+        invalidate();
+        scheduleScrollToCurrent();
+    }
+
+    /**
+     * 替换区间之后的角标随Tab平移，区间内超出新内容长度的角标移除
+     */
+    private void shiftBadges(int start, int removeCount, int insertCount) {
+        if (badges.size() == 0) {
+            return;
+        }
+        int delta = insertCount - removeCount;
+        for (int i = 0; i < badges.size(); i++) {
+            int position = badges.keyAt(i);
+            if (position >= start + removeCount) {
+                spareBadges.put(position + delta, badges.valueAt(i));
+            } else if (position < start + insertCount) {
+                spareBadges.put(position, badges.valueAt(i));
+            }
+        }
+        SparseIntArray shifted = spareBadges;
+        spareBadges = badges;
+        badges = shifted;
+        spareBadges.clear();
+    }
+
+    private void updateTabViews(int start, int removeCount, int insertCount,
+                                String[] oldTitles, int[] oldIconResIds) {
+        View[] removed = new View[removeCount];
+        for (int i = 0; i < removeCount; i++) {
+            removed[i] = tabsContainer.getChildAt(start + i);
+        }
+        tabsContainer.removeViews(start, removeCount);
+
+        View[] inserted = new View[insertCount];
+        if (oldTitles != null && removeCount > 0 && insertCount > 0) {
+            //内容相同的Tab直接移动到新位置
+            HashMap<Object, ArrayList<Integer>> candidates = new HashMap<Object, ArrayList<Integer>>();
+            for (int i = 0; i < removeCount; i++) {
+                Object key = iconTabs ? (Object) oldIconResIds[start + i] : oldTitles[start + i];
+                ArrayList<Integer> indexes = candidates.get(key);
+                if (indexes == null) {
+                    indexes = new ArrayList<Integer>();
+                    candidates.put(key, indexes);
+                }
+                indexes.add(i);
+            }
+            for (int i = 0; i < insertCount; i++) {
+                Object key = iconTabs ? (Object) tabIconResIds[start + i] : tabTitles[start + i];
+                ArrayList<Integer> indexes = candidates.get(key);
+                if (indexes != null && !indexes.isEmpty()) {
+                    int index = indexes.remove(indexes.size() - 1);
+                    inserted[i] = removed[index];
+                    removed[index] = null;
+                }
+            }
+        }
+
+        //其余位置优先复用被删除的Tab重新绑定，不够时再创建
+        int next = 0;
+        for (int i = 0; i < insertCount; i++) {
+            if (inserted[i] != null) {
+                continue;
+            }
+            while (next < removeCount && removed[next] == null) {
+                next++;
+            }
+            View tab;
+            if (next < removeCount) {
+                tab = removed[next++];
+                bindTab(tab, start + i);
+            } else {
+                tab = obtainTab(start + i);
+            }
+            inserted[i] = tab;
+        }
+        for (int i = next; i < removeCount; i++) {
+            if (removed[i] != null) {
+                releaseTab(removed[i]);
+            }
+        }
+
+        for (int i = 0; i < insertCount; i++) {
+            addTab(start + i, inserted[i]);
+        }
+    }
+
+    private void updateVirtualTabs(int start, int removeCount, int insertCount) {
+        int delta = insertCount - removeCount;
+        int oldCount = tabCount - delta;
+
+        if (!virtualGeometryDirty) {
+            //只测量新插入或变化的Tab，其余宽度平移
+            if (virtualTabWidths.length < tabCount) {
+                virtualTabWidths = Arrays.copyOf(virtualTabWidths, tabCount);
+                tabLabels = Arrays.copyOf(tabLabels, tabCount);
+            }
+            System.arraycopy(virtualTabWidths, start + removeCount,
+                    virtualTabWidths, start + insertCount, oldCount - start - removeCount);
+            System.arraycopy(tabLabels, start + removeCount,
+                    tabLabels, start + insertCount, oldCount - start - removeCount);
+            prepareMeasurePaint();
+            for (int i = start; i < start + insertCount; i++) {
+                virtualTabWidths[i] = measureVirtualTab(i);
+            }
+            tabsContainer.setTabWidths(virtualTabWidths, tabCount,
+                    shouldExpand ? virtualViewportWidth : 0);
+        }
+
+        for (int i = 0; i < activeTabs.size(); i++) {
+            int position = activeTabs.keyAt(i);
+            View tab = activeTabs.valueAt(i);
+            if (position < start) {
+                scratchTabs.put(position, tab);
+            } else if (position >= start + removeCount) {
+                tabsContainer.setTabPosition(tab, position + delta);
+                scratchTabs.put(position + delta, tab);
+            } else {
+                tabsContainer.detachTab(tab);
+                scrapTab(tab);
+            }
+        }
+        SparseArray<View> tabs = activeTabs;
+        activeTabs = scratchTabs;
+        scratchTabs = tabs;
+        scratchTabs.clear();
+
+        tabsContainer.requestLayout();
+    }
+
+    /**
+     * 选中位置变化后只更新前后两个Tab的文字颜色，setTextColor只会重绘，不会重新布局
+     *
+     * @param previousSelected 变化前选中的Tab，可能已被回收或为null
+     */
+    private void refreshSelectedTab(View previousSelected) {
+        if (drawsCrossfadeText()) {
+            //标题由导航按滑动进度绘制
+            return;
+        }
+        View selected = getTabView(selectedPosition);
+        if (previousSelected != selected && previousSelected instanceof TextView) {
+            ((TextView) previousSelected).setTextColor(textColor);
+        }
+        if (selected instanceof TextView) {
+            ((TextView) selected).setTextColor(textColorSelected);
+        }
+    }
+
+    private void applyTabTextColor(View tab, int position) {
+        if (tab instanceof TextView) {
+            ((TextView) tab).setTextColor(getTabTextColor(position));
+        }
+        if (tab instanceof TabTextView) {
+            ((TabTextView) tab).setTextDrawnByParent(drawsCrossfadeText());
+        }
+    }
+
+    /**
+     * position处Tab的选中程度，0为未选中，1为选中，开启渐变时滑动中的两个Tab取中间值
+     */
+    private float getSelectionFraction(int position) {
+        if (!textCrossfade) {
+            return position == selectedPosition ? 1f : 0f;
+        }
+        if (position == currentPosition) {
+            return 1f - currentPositionOffset;
+        }
+        if (position == currentPosition + 1) {
+            return currentPositionOffset;
+        }
+        return 0f;
+    }
+
+    private int getTabTextColor(int position) {
+        if (!textCrossfade) {
+            return position == selectedPosition ? textColorSelected : textColor;
+        }
+        return getCrossfadeColor(getSelectionFraction(position));
+    }
+
+    /**
+     * 查表得到渐变色，颜色修改后第一次使用时按ARGB通道重建颜色表
+     */
+    private int getCrossfadeColor(float fraction) {
+        if (!crossfadeColorsValid || crossfadeFromColor != textColor || crossfadeToColor != textColorSelected) {
+            crossfadeFromColor = textColor;
+            crossfadeToColor = textColorSelected;
+            for (int i = 0; i <= CROSSFADE_STEPS; i++) {
+                crossfadeColors[i] = blendColor(textColor, textColorSelected, (float) i / CROSSFADE_STEPS);
+            }
+            crossfadeColorsValid = true;
+        }
+        return crossfadeColors[Math.round(fraction * CROSSFADE_STEPS)];
+    }
+
+    private static int blendColor(int from, int to, float fraction) {
+        int a = Color.alpha(from) + Math.round((Color.alpha(to) - Color.alpha(from)) * fraction);
+        int r = Color.red(from) + Math.round((Color.red(to) - Color.red(from)) * fraction);
+        int g = Color.green(from) + Math.round((Color.green(to) - Color.green(from)) * fraction);
+        int b = Color.blue(from) + Math.round((Color.blue(to) - Color.blue(from)) * fraction);
+        return Color.argb(a, r, g, b);
+    }
+
+    private float getTabScale(int position) {
+        return 1f + (selectedTextScale - 1f) * getSelectionFraction(position);
+    }
+
+    /**
+     * 只在选中位置变化时缩放选中的Tab，容器在drawChild时缩放画布。
+     * 渐变的文字由导航自己绘制，缩放也在绘制文字时完成
+     */
+    private void updateTabScale() {
+        if (selectedTextScale == 1f || drawsFlatText() || drawsCrossfadeText()) {
+            tabsContainer.setScaledTab(-1, 1f);
+        } else {
+            tabsContainer.setScaledTab(selectedPosition, selectedTextScale);
+        }
+    }
+
+    /**
+     * 开启渐变的文字Tab由导航在dispatchDraw中绘制标题，Tab View只绘制背景
+     */
+    private boolean drawsCrossfadeText() {
+        return textCrossfade && !iconTabs && !flatText;
+    }
+
+    /**
+     * 开启渐变时滑动过程中只重绘导航上前后两个Tab的区域，Tab View和容器都不需要重绘
+     *
+     * @param previousPosition 上一次回调时的currentPosition
+     */
+    private void invalidateCrossfadeTabs(int previousPosition) {
+        if (previousPosition != currentPosition) {
+            invalidateTab(previousPosition);
+            invalidateTab(previousPosition + 1);
+        }
+        invalidateTab(currentPosition);
+        invalidateTab(currentPosition + 1);
+    }
+
+    /**
+     * 渐变开关变化后对当前的Tab View做一次遍历，回收列表中的Tab在复用时设置
+     */
+    private void refreshTabTextDrawing() {
+        if (tabsContainer.isVirtualized()) {
+            for (int i = 0; i < activeTabs.size(); i++) {
+                applyTabTextColor(activeTabs.valueAt(i), activeTabs.keyAt(i));
+            }
+        } else {
+            for (int i = 0; i < tabsContainer.getChildCount(); i++) {
+                applyTabTextColor(tabsContainer.getChildAt(i), i);
+            }
+        }
+        updateTabScale();
+        invalidate();
+    }
+
+    private void scheduleScrollToCurrent() {
+        scrollToCurrentPending = true;
+    }
+
+    /**
+     * 布局完成后执行等待中的滚动，Tab几何信息还未就绪时留到下一次布局
+     */
+    private void scrollToCurrentIfPending() {
+        if (!scrollToCurrentPending || pager == null || tabCount == 0 || !hasTabGeometry()) {
+            return;
+        }
+        scrollToCurrentPending = false;
+        if (restoredScrollX >= 0 && restoredFingerprint == getTabsFingerprint()
+                && restoredTotalWidth == tabsContainer.getTotalWidth()) {
+            scrollScheduler.jumpTo(restoredScrollX);
+        } else {
+            currentPosition = pager.getCurrentItem();
+            scrollScheduler.jumpTo(getScrollXForChild(currentPosition, 0));
+        }
+        restoredScrollX = -1;
+    }
+
+    /**
+     * Tab数量和内容的摘要，用来判断保存的滚动位置是否仍然有效
+     */
+    private int getTabsFingerprint() {
+        int result = iconTabs ? -tabCount : tabCount;
+        for (int i = 0; i < tabCount; i++) {
+            if (iconTabs) {
+                result = 31 * result + tabIconResIds[i];
+            } else {
+                result = 31 * result + (tabTitles[i] == null ? 0 : tabTitles[i].hashCode());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 丢弃全部Tab并根据Adapter重新创建
+     */
+    private void rebuildTabs() {
+        if (pager.getAdapter() == null) {
+            clearTabs();
+            return;
+        }
+        TraceCompat.beginSection("TabLayout#rebuildTabs");
+        long start = startBuildTiming();
+        recreateTabs();
+        reportTabsBuilt(start);
+        TraceCompat.endSection();
+    }
+
+    private void recreateTabs() {
+        cancelAsyncBinding();
+        asyncBindIncomplete = false;
+        tabsReleased = false;
+        scrapAllTabs();
+
+        tabCount = pager.getAdapter().getCount();
+        if (asyncBinding) {
+            startAsyncBind();
+            return;
+        }
+        loadTabContents();
+        tabsContainer.setVirtualized(usesWidthTable());
+        tabsBound = true;
+
+        if (tabsContainer.isVirtualized()) {
+            //Tab宽度在onMeasure中计算，View在onLayout/滚动时按需创建，扁平模式不创建View
+            virtualGeometryDirty = true;
+            tabsContainer.requestLayout();
+        } else {
+            for (int i = 0; i < tabCount; i++) {
+                addTab(i, obtainTab(i));
+            }
+        }
+        //只有虚拟化模式会在滚动时继续使用回收的Tab
+        if (!tabsContainer.isVirtualized() || drawsFlatText()) {
+            releaseScrapTabs();
+        }
+
+        scheduleScrollToCurrent();
+
+    }
+
+    /**
+     * ViewPager没有Adapter时移除全部Tab，设置新的Adapter后再重新创建
+     */
+    private void clearTabs() {
+        cancelAsyncBinding();
+        asyncBindIncomplete = false;
+        tabsReleased = false;
+        scrapAllTabs();
+        releaseScrapTabs();
+        tabCount = 0;
+        tabsBound = false;
+        virtualGeometryDirty = true;
+        tabsContainer.requestLayout();
+        invalidate();
+    }
+
+    private void startAsyncBind() {
+        iconTabs = pager.getAdapter() instanceof IconTabProvider;
+        ensureTabContentCapacity(tabCount);
+        if (tabLoaded.length < tabCount) {
+            tabLoaded = new boolean[tabCount];
+        } else {
+            Arrays.fill(tabLoaded, 0, tabCount, false);
+        }
+        tabsContainer.setVirtualized(true);
+        tabsBound = false;
+        asyncBindRunning = true;
+        asyncBindIncomplete = true;
+        asyncBindNanos = 0;
+
+        //未加载的Tab先按占位宽度布局
+        virtualGeometryDirty = true;
+        tabsContainer.requestLayout();
+
+        prepareMeasurePaint();
+        TabExecutors.execute(new AsyncBindTask(asyncBindGeneration, pager.getAdapter(),
+                tabCount, iconTabs, measureStyle, tabPadding, pager.getCurrentItem()));
+    }
+
+    /**
+     * 主线程发布后台线程读取好的一块Tab
+     */
+    private void publishTabChunk(int generation, int start, String[] titles, String[] labels,
+                                 int[] widths, int[] iconResIds) {
+        if (generation != asyncBindGeneration) {
+            return;
+        }
+        long startNanos = startBuildTiming();
+        int count = iconTabs ? iconResIds.length : titles.length;
+        for (int i = 0; i < count; i++) {
+            int position = start + i;
+            if (iconTabs) {
+                tabIconResIds[position] = iconResIds[i];
+            } else {
+                tabTitles[position] = titles[i];
+            }
+            tabLoaded[position] = true;
+        }
+
+        if (!virtualGeometryDirty) {
+            for (int i = 0; i < count; i++) {
+                int position = start + i;
+                if (iconTabs) {
+                    virtualTabWidths[position] = measureIconTab(iconResIds[i]);
+                } else {
+                    tabLabels[position] = labels[i];
+                    virtualTabWidths[position] = widths[i];
+                }
+            }
+            tabsContainer.setTabWidths(virtualTabWidths, tabCount,
+                    shouldExpand ? virtualViewportWidth : 0);
+        }
+        tabsContainer.requestLayout();
+        invalidate();
+        reportTabsBuilt(startNanos);
+    }
+
+    private void finishAsyncBind(int generation) {
+        if (generation != asyncBindGeneration) {
+            return;
+        }
+        asyncBindRunning = false;
+        asyncBindIncomplete = false;
+        tabsBound = true;
+        scheduleScrollToCurrent();
+        if (metricsListener != null) {
+            metricsListener.onTabsBuilt(tabCount, asyncBindNanos);
+        }
+        if (onTabsBoundListener != null) {
+            onTabsBoundListener.onTabsBound(tabCount);
+        }
+    }
+
+    /**
+     * 后台线程读取Adapter失败，取消这次绑定。Adapter的数量已经变化时按新的内容重新绑定，
+     * 否则保留已经发布的Tab，避免对同一个出错的Adapter反复重试
+     *
+     * @param count 开始绑定时Adapter的数量
+     */
+    private void onAsyncBindFailed(int generation, int count) {
+        if (generation != asyncBindGeneration) {
+            return;
+        }
+        cancelAsyncBinding();
+        if (pager != null && pager.getAdapter() != null && pager.getAdapter().getCount() != count) {
+            rebuildTabs();
+        }
+    }
+
+    private boolean isTabLoaded(int position) {
+        return !asyncBindIncomplete || tabLoaded[position];
+    }
+
+    /**
+     * 异步绑定未完成的Tab使用的估计宽度
+     */
+    private int getPlaceholderTabWidth() {
+        return 2 * tabPadding + 3 * textSize;
+    }
+
+    /**
+     * 后台线程读取一段Tab的标题并测量宽度，当前页所在的块最先处理，结果按块投递到主线程
+     */
+    private class AsyncBindTask implements Runnable {
+        private final int generation;
+        private final PagerAdapter adapter;
+        private final int count;
+        private final boolean icons;
+        private final TextWidthCache.Style style;
+        private final int padding;
+        private final int firstStart;
+        private final int firstEnd;
+        private TextPaint paint;
+
+        AsyncBindTask(int generation, PagerAdapter adapter, int count,
+                      boolean icons, TextWidthCache.Style style, int padding, int currentItem) {
+            this.generation = generation;
+            this.adapter = adapter;
+            this.count = count;
+            this.icons = icons;
+            this.style = style;
+            this.padding = padding;
+            this.firstStart = Math.max(0, Math.min(currentItem - ASYNC_BIND_CHUNK / 2,
+                    count - ASYNC_BIND_CHUNK));
+            this.firstEnd = Math.min(count, firstStart + ASYNC_BIND_CHUNK);
+        }
+
+        @Override
+        public void run() {
+            if (!icons) {
+                paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+                style.applyTo(paint);
+            }
+            if (!loadChunk(firstStart, firstEnd)) {
+                return;
+            }
+            for (int start = 0; start < count; start += ASYNC_BIND_CHUNK) {
+                int end = Math.min(count, start + ASYNC_BIND_CHUNK);
+                if (!loadChunk(start, Math.min(end, firstStart))
+                        || !loadChunk(Math.max(start, firstEnd), end)) {
+                    return;
+                }
+            }
+            TabExecutors.postToMain(new Runnable() {
+                @Override
+                public void run() {
+                    finishAsyncBind(generation);
+                }
+            });
+        }
+
+        /**
+         * @return 已经被取消时返回false
+         */
+        private boolean loadChunk(final int start, int end) {
+            if (generation != asyncBindGeneration) {
+                return false;
+            }
+            if (start >= end) {
+                return true;
+            }
+            final int size = end - start;
+            final String[] titles = icons ? null : new String[size];
+            final String[] labels = icons ? null : new String[size];
+            final int[] widths = icons ? null : new int[size];
+            final int[] iconResIds = icons ? new int[size] : null;
+            for (int i = 0; i < size; i++) {
+                //Adapter可能在主线程被修改，每读取一项前确认绑定没有被取消
+                if (generation != asyncBindGeneration) {
+                    return false;
+                }
+                try {
+                    if (icons) {
+                        iconResIds[i] = ((IconTabProvider) adapter).getPageIconResId(start + i);
+                    } else {
+                        String title = adapter.getPageTitle(start + i).toString();
+                        titles[i] = title;
+                        labels[i] = style.transform(title);
+                        widths[i] = (int) Math.ceil(TextWidthCache.getWidth(style, title, paint)) + 2 * padding;
+                    }
+                } catch (RuntimeException e) {
+                    //Adapter在绑定过程中变小或返回了null标题，放弃这次绑定，交给主线程处理
+                    TabExecutors.postToMain(new Runnable() {
+                        @Override
+                        public void run() {
+                            onAsyncBindFailed(generation, count);
+                        }
+                    });
+                    return false;
+                }
+            }
+            TabExecutors.postToMain(new Runnable() {
+                @Override
+                public void run() {
+                    publishTabChunk(generation, start, titles, labels, widths, iconResIds);
+                }
+            });
+            return true;
+        }
+    }
+
+    /**
+     * 缓存Adapter的标题或图标，虚拟化模式下按需绑定时直接读取
+     */
+    private void loadTabContents() {
+        iconTabs = pager.getAdapter() instanceof IconTabProvider;
+        ensureTabContentCapacity(tabCount);
+        loadTabContents(0, tabCount);
+    }
+
+    private void loadTabContents(int start, int count) {
+        if (iconTabs) {
+            IconTabProvider provider = (IconTabProvider) pager.getAdapter();
+            for (int i = start; i < start + count; i++) {
+                tabIconResIds[i] = provider.getPageIconResId(i);
+            }
+        } else {
+            for (int i = start; i < start + count; i++) {
+                tabTitles[i] = pager.getAdapter().getPageTitle(i).toString();
+            }
+        }
+    }
+
+    private void ensureTabContentCapacity(int count) {
+        if (iconTabs) {
+            if (tabIconResIds.length < count) {
+                tabIconResIds = Arrays.copyOf(tabIconResIds, Math.max(count, tabIconResIds.length * 2));
+            }
+        } else if (tabTitles.length < count) {
+            tabTitles = Arrays.copyOf(tabTitles, Math.max(count, tabTitles.length * 2));
+        }
+    }
+
+    /**
+     * 把position对应的标题或图标绑定到Tab上
+     */
+    private void bindTab(View tab, int position) {
+        if (iconTabs) {
+            bindIconTab((ImageButton) tab, position);
+            return;
+        }
+        String title = tabTitles[position];
+        if (textAllCaps && Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            title = title.toUpperCase(locale);
+        }
+        ((TextView) tab).setText(title);
+    }
+
+    /**
+     * 从共享缓存设置按Tab高度降采样的图标。虚拟化模式下视口外的Tab在后台解码，
+     * Tab宽度来自宽度表，图标加载完成不会引起重新布局
+     */
+    private void bindIconTab(final ImageButton tab, int position) {
+        int resId = tabIconResIds[position];
+        if (TabIconCache.isUndecodable(resId)) {
+            tab.setTag(R.id.tab_icon_request, null);
+            tab.setImageResource(resId);
+            return;
+        }
+
+        int iconSize = getIconSize();
+        if (iconSize < 0) {
+            //高度未知时解码的原尺寸位图在布局后会被丢弃，等onSizeChanged再解码
+            tab.setTag(R.id.tab_icon_request, null);
+            tab.setImageDrawable(null);
+            iconBindDeferred = true;
+            return;
+        }
+        boundIconSize = iconSize;
+        TabIconCache.Key key = TabIconCache.key(resId, boundIconSize);
+        tab.setTag(R.id.tab_icon_request, key);
+        Bitmap bitmap = TabIconCache.getCached(key);
+        if (bitmap != null) {
+            tab.setImageBitmap(bitmap);
+            return;
+        }
+
+        if (tabsContainer.isVirtualized() && hasTabGeometry() && !isTabInViewport(position)) {
+            tab.setImageDrawable(null);
+            TabIconCache.load(getResources(), key, new TabIconCache.Callback() {
+                @Override
+                public void onIconLoaded(TabIconCache.Key loaded, Bitmap bitmap) {
+                    //加载期间Tab已经绑定了其他图标
+                    if (tab.getTag(R.id.tab_icon_request) != loaded) {
+                        return;
+                    }
+                    if (bitmap != null) {
+                        tab.setImageBitmap(bitmap);
+                    } else {
+                        tab.setImageResource(loaded.resId);
+                    }
+                }
+            });
+            return;
+        }
+
+        bitmap = TabIconCache.get(getResources(), key);
+        if (bitmap != null) {
+            tab.setImageBitmap(bitmap);
+        } else {
+            tab.setImageResource(resId);
+        }
+    }
+
+    /**
+     * 图标的解码高度，首次布局前取布局参数中的固定高度。高度由图标决定（wrap_content）时为0，
+     * 按原尺寸解码；高度还未确定时为-1
+     */
+    private int getIconSize() {
+        ViewGroup.LayoutParams lp = getLayoutParams();
+        if (lp != null && lp.height == ViewGroup.LayoutParams.WRAP_CONTENT) {
+            return 0;
+        }
+        int height = getHeight();
+        if (height == 0 && lp != null) {
+            height = lp.height;
+        }
+        if (height <= 0) {
+            return -1;
+        }
+        return Math.max(0, height - getPaddingTop() - getPaddingBottom());
+    }
+
+    private boolean isTabInViewport(int position) {
+        int left = tabsContainer.getTabLeft(position) - getScrollX();
+        return left < getWidth() && left + tabsContainer.getTabWidth(position) > 0;
+    }
+
+    /**
+     * 样式修改后对当前的Tab View做一次遍历，回收列表中的Tab在复用时根据样式标记重新设置
+     */
+    private void restyleTabViews(boolean paddingChanged, boolean expandChanged, boolean rebind) {
+        boolean virtual = tabsContainer.isVirtualized();
+        int count = virtual ? activeTabs.size() : tabsContainer.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View tab = virtual ? activeTabs.valueAt(i) : tabsContainer.getChildAt(i);
+            int position = virtual ? activeTabs.keyAt(i) : i;
+            if (paddingChanged) {
+                tab.setPadding(tabPadding, 0, tabPadding, 0);
+            }
+            if (expandChanged && !virtual) {
+                tab.setLayoutParams(shouldExpand ? expandedTabLayoutParams : defaultTabLayoutParams);
+            }
+            if (rebind) {
+                bindTab(tab, position);
+            }
+            updateTabStyle(tab, position);
+        }
+
+        if (paddingChanged) {
+            for (int i = 0; i < textTabScrap.size(); i++) {
+                textTabScrap.get(i).setPadding(tabPadding, 0, tabPadding, 0);
+            }
+            for (int i = 0; i < iconTabScrap.size(); i++) {
+                iconTabScrap.get(i).setPadding(tabPadding, 0, tabPadding, 0);
+            }
+        }
+    }
+
+    /**
+     * 只有文字颜色变化时更新当前的Tab View，不重新设置其他样式，也不会请求布局
+     */
+    private void recolorTabViews() {
+        boolean virtual = tabsContainer.isVirtualized();
+        int count = virtual ? activeTabs.size() : tabsContainer.getChildCount();
+        TabViewStyle style = getTabViewStyle();
+        for (int i = 0; i < count; i++) {
+            View tab = virtual ? activeTabs.valueAt(i) : tabsContainer.getChildAt(i);
+            applyTabTextColor(tab, virtual ? activeTabs.keyAt(i) : i);
+            tab.setTag(R.id.tab_view_style, style);
+        }
+    }
+
+    /**
+     * 高度变化后按新的尺寸重新绑定已有的图标
+     */
+    private void rebindIconTabs() {
+        if (tabsContainer.isVirtualized()) {
+            for (int i = 0; i < activeTabs.size(); i++) {
+                bindTab(activeTabs.valueAt(i), activeTabs.keyAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < tabsContainer.getChildCount(); i++) {
+            bindTab(tabsContainer.getChildAt(i), i);
+        }
+    }
+
+    private View getTabView(int position) {
+        if (tabsContainer.isVirtualized()) {
+            return activeTabs.get(position);
+        }
+        return position < tabsContainer.getChildCount() ? tabsContainer.getChildAt(position) : null;
+    }
+
+    private TextView createTextTab() {
+        TextView tab = new TabTextView(getContext());
+        tab.setGravity(Gravity.CENTER);
+        tab.setSingleLine();
+        initTab(tab);
+        return tab;
+    }
+
+    private ImageButton createIconTab() {
+        ImageButton tab = new ImageButton(getContext());
+        initTab(tab);
+        return tab;
+    }
+
+    private void initTab(View tab) {
+        tab.setFocusable(true);
+        tab.setOnClickListener(tabClickListener);
+        tab.setPadding(tabPadding, 0, tabPadding, 0);
+    }
+
+    private void addTab(final int position, View tab) {
+        tabsContainer
+                .addView(tab, position, shouldExpand ? expandedTabLayoutParams
+                        : defaultTabLayoutParams);
+    }
+
+    private void updateTabStyle(View v, int position) {
+
+        restyledTabsSinceFrame++;
+        Object previousStyle = v.getTag(R.id.tab_view_style);
+
+        v.setBackgroundResource(tabBackgroundResId);
+
+        if (v instanceof TextView) {
+
+            TextView tab = (TextView) v;
+            tab.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+            tab.setTypeface(tabTypeface, tabTypefaceStyle);
+            tab.setTextColor(getTabTextColor(position));
+            if (tab instanceof TabTextView) {
+                ((TabTextView) tab).setTextDrawnByParent(drawsCrossfadeText());
+            }
+
+            // setAllCaps() is only available from API 14, so the upper case
+            // is made manually if we are on a
+            // pre-ICS-build
+            //setAllCaps每次都会重新设置文字并请求布局，只在与Tab上一次的样式不同时调用，
+            //复用的Tab可能来自全部大写的导航，关闭时也要设置
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+                boolean previousAllCaps = previousStyle instanceof TabViewStyle
+                        && ((TabViewStyle) previousStyle).allCaps;
+                if (previousAllCaps != textAllCaps) {
+                    tab.setAllCaps(textAllCaps);
+                }
+            } else if (textAllCaps) {
+                tab.setText(tab.getText().toString()
+                        .toUpperCase(locale));
+            }
+        }
+        v.setTag(R.id.tab_view_style, getTabViewStyle());
+    }
+
+    /**
+     * 当前设置到Tab View上的样式，样式不变时复用同一个对象
+     */
+    private TabViewStyle getTabViewStyle() {
+        if (tabViewStyle == null || !tabViewStyle.matches(tabBackgroundResId, textSize,
+                tabTypeface, tabTypefaceStyle, textColor, textAllCaps)) {
+            tabViewStyle = new TabViewStyle(tabBackgroundResId, textSize,
+                    tabTypeface, tabTypefaceStyle, textColor, textAllCaps);
+        }
+        return tabViewStyle;
+    }
+
+    /**
+     * 虚拟化模式下计算全部Tab的宽度，文字Tab只测量文本，不创建View
+     *
+     * @param viewportWidth
+     */
+    private void measureVirtualTabs(int viewportWidth) {
+        if (virtualTabWidths.length < tabCount) {
+            virtualTabWidths = new int[tabCount];
+            tabLabels = new String[tabCount];
+        }
+        prepareMeasurePaint();
+        for (int i = 0; i < tabCount; i++) {
+            virtualTabWidths[i] = measureVirtualTab(i);
+        }
+
+        //与LinearLayout的weight效果一致：内容不足一屏时等分视口宽度
+        tabsContainer.setTabWidths(virtualTabWidths, tabCount,
+                shouldExpand ? viewportWidth : 0);
+        virtualViewportWidth = viewportWidth;
+        virtualGeometryDirty = false;
+    }
+
+    private void prepareMeasurePaint() {
+        if (measurePaint == null) {
+            measurePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        }
+        getMeasureStyle().applyTo(measurePaint);
+    }
+
+    /**
+     * 当前文字样式对应的宽度缓存样式，样式不变时复用同一个对象
+     */
+    private TextWidthCache.Style getMeasureStyle() {
+        if (measureStyle == null || !measureStyle.matches(textSize, tabTypeface,
+                tabTypefaceStyle, textAllCaps, locale)) {
+            measureStyle = new TextWidthCache.Style(textSize, tabTypeface,
+                    tabTypefaceStyle, textAllCaps, locale);
+        }
+        return measureStyle;
+    }
+
+    /**
+     * 在后台线程按当前文字样式预先测量标题宽度，结果保存在进程内共享的缓存中，
+     * 之后绑定相同标题的Adapter时不再在主线程测量。只对虚拟化和扁平文字模式生效
+     *
+     * @param titles
+     */
+    public void precomputeTitles(CharSequence[] titles) {
+        String[] strings = new String[titles.length];
+        for (int i = 0; i < titles.length; i++) {
+            strings[i] = titles[i] == null ? null : titles[i].toString();
+        }
+        TextWidthCache.precompute(getMeasureStyle(), strings);
+    }
+
+    private int measureVirtualTab(int position) {
+        if (!isTabLoaded(position)) {
+            return getPlaceholderTabWidth();
+        }
+        return iconTabs ? measureIconTab(tabIconResIds[position]) : measureTextTab(position);
+    }
+
+    private int measureTextTab(int position) {
+        String title = tabTitles[position];
+        tabLabels[position] = measureStyle.transform(title);
+        return (int) Math.ceil(TextWidthCache.getWidth(measureStyle, title, measurePaint)) + 2 * tabPadding;
+    }
+
+    private final TabStrip.ContentWidthProvider contentWidthProvider = new TabStrip.ContentWidthProvider() {
+        @Override
+        public int getContentWidth(int position) {
+            if (position >= tabCount) {
+                return 0;
+            }
+            if (iconTabs) {
+                return measureIconTab(tabIconResIds[position]);
+            }
+            return (int) Math.ceil(TextWidthCache.getWidth(measureStyle, tabTitles[position], measurePaint))
+                    + 2 * tabPadding;
+        }
+    };
+
+    private int measureIconTab(int resId) {
+        int width = iconWidths.get(resId, -1);
+        if (width < 0) {
+            //位图只读取尺寸，不解码像素
+            width = TabIconCache.getIntrinsicWidth(getResources(), resId);
+            if (width < 0) {
+                Drawable drawable = ContextCompat.getDrawable(getContext(), resId);
+                width = drawable == null ? 0 : Math.max(0, drawable.getIntrinsicWidth());
+            }
+            iconWidths.put(resId, width);
+        }
+        return width + 2 * tabPadding;
+    }
+
+    /**
+     * 根据当前滚动位置，回收视口外的Tab并绑定视口附近缺失的Tab。
+     * 异步绑定即使没有开启虚拟化也按宽度表布局，同样需要按需创建Tab
+     */
+    private void fillVirtualTabs() {
+        if (!tabsContainer.isVirtualized() || drawsFlatText() || !hasTabGeometry() || tabCount == 0) {
+            return;
+        }
+
+        //视口左右各预加载半屏
+        int width = getWidth();
+        int preload = width / 2;
+        int scrollX = getScrollX();
+        int first = tabsContainer.findTabAt(scrollX - preload);
+        int last = tabsContainer.findTabAt(scrollX + width + preload);
+
+        for (int i = activeTabs.size() - 1; i >= 0; i--) {
+            int position = activeTabs.keyAt(i);
+            if (position < first || position > last) {
+                View tab = activeTabs.valueAt(i);
+                activeTabs.removeAt(i);
+                tabsContainer.detachTab(tab);
+                scrapTab(tab);
+            }
+        }
+
+        for (int position = first; position <= last; position++) {
+            if (activeTabs.get(position) == null && isTabLoaded(position)) {
+                View tab = obtainTab(position);
+                activeTabs.put(position, tab);
+                tabsContainer.attachTab(tab, position);
+            }
+        }
+    }
+
+    /**
+     * 依次从本地回收列表、共享缓存池中取出Tab，都没有时再创建，并绑定position的内容
+     */
+    private View obtainTab(int position) {
+        ArrayList<View> scrap = iconTabs ? iconTabScrap : textTabScrap;
+        View tab = null;
+        if (!scrap.isEmpty()) {
+            tab = scrap.remove(scrap.size() - 1);
+        } else if (tabViewPool != null) {
+            tab = tabViewPool.acquire(iconTabs ? TabViewPool.TYPE_ICON : TabViewPool.TYPE_TEXT,
+                    getContext());
+            if (tab != null) {
+                initTab(tab);
+            }
+        }
+        if (tab == null) {
+            tab = iconTabs ? createIconTab() : createTextTab();
+        }
+
+        bindTab(tab, position);
+        //复用的Tab样式相同时只需要更新选中颜色
+        if (getTabViewStyle().equals(tab.getTag(R.id.tab_view_style))) {
+            applyTabTextColor(tab, position);
+        } else {
+            updateTabStyle(tab, position);
+        }
+        return tab;
+    }
+
+    private void scrapTab(View tab) {
+        if (tab instanceof TextView) {
+            textTabScrap.add(tab);
+        } else {
+            iconTabScrap.add(tab);
+        }
+    }
+
+    /**
+     * 把当前全部Tab移出容器放入本地回收列表
+     */
+    private void scrapAllTabs() {
+        for (int i = 0; i < activeTabs.size(); i++) {
+            View tab = activeTabs.valueAt(i);
+            tabsContainer.detachTab(tab);
+            scrapTab(tab);
+        }
+        activeTabs.clear();
+        for (int i = 0; i < tabsContainer.getChildCount(); i++) {
+            scrapTab(tabsContainer.getChildAt(i));
+        }
+        tabsContainer.removeAllViews();
+    }
+
+    /**
+     * 本地回收列表中的Tab放回共享缓存池，没有设置缓存池时直接丢弃
+     */
+    private void releaseScrapTabs() {
+        for (int i = 0; i < textTabScrap.size(); i++) {
+            releaseTab(textTabScrap.get(i));
+        }
+        for (int i = 0; i < iconTabScrap.size(); i++) {
+            releaseTab(iconTabScrap.get(i));
+        }
+        textTabScrap.clear();
+        iconTabScrap.clear();
+    }
+
+    private void releaseTab(View tab) {
+        if (tabViewPool != null) {
+            tabViewPool.release(tab instanceof TextView ? TabViewPool.TYPE_TEXT : TabViewPool.TYPE_ICON, tab);
+        }
+    }
+
+    /**
+     * Tab几何信息表在布局后才会更新，Tab数量变化后、布局前不能查询Tab位置
+     */
+    private boolean hasTabGeometry() {
+        return tabsContainer.getTabCount() == tabCount
+                && !(tabsContainer.isVirtualized() && virtualGeometryDirty);
+    }
+
+    private int getTabLeft(int position) {
+        return tabsContainer.getTabLeft(position);
+    }
+
+    private int getTabRight(int position) {
+        return tabsContainer.getTabRight(position);
+    }
+
+    private int getTabWidth(int position) {
+        return tabsContainer.getTabWidth(position);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (tabsContainer.isVirtualized()) {
+            int viewportWidth = MeasureSpec.getSize(widthMeasureSpec)
+                    - getPaddingLeft() - getPaddingRight();
+            if (virtualGeometryDirty || viewportWidth != virtualViewportWidth) {
+                measureVirtualTabs(viewportWidth);
+            }
+        } else {
+            //等分模式下内容宽度按文字宽度缓存计算，每个Tab只按最终宽度测量一次
+            boolean expand = shouldExpand && tabCount > 0;
+            if (expand && !iconTabs) {
+                prepareMeasurePaint();
+            }
+            tabsContainer.setContentWidthProvider(expand ? contentWidthProvider : null);
+            tabsContainer.setExpandWidth(MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                    ? 0 : MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight());
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        scrollToCurrentIfPending();
+        if (pendingScrollTab >= 0 && tabCount > 0 && hasTabGeometry()) {
+            scrollScheduler.jumpTo(getScrollXForChild(Math.min(pendingScrollTab, tabCount - 1), 0));
+            pendingScrollTab = -1;
+        }
+        fillVirtualTabs();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (!iconTabs || (!tabsBound && !iconBindDeferred)) {
+            return;
+        }
+        int iconSize = getIconSize();
+        if (iconSize >= 0 && (iconBindDeferred || (boundIconSize >= 0 && iconSize != boundIconSize))) {
+            iconBindDeferred = false;
+            rebindIconTabs();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (pager == null) {
+            return;
+        }
+        observeAdapter();
+        if (pager.getAdapter() == null) {
+            if (tabCount > 0 || tabsReleased) {
+                clearTabs();
+            }
+            adapterChangesMissed = false;
+            return;
+        }
+        //移除窗口时放回缓存池的Tab、被取消的异步绑定重新开始，否则补上移除期间Adapter的变化
+        if (tabsReleased || (asyncBindIncomplete && !asyncBindRunning)) {
+            rebuildTabs();
+        } else if (adapterChangesMissed && !asyncBindRunning) {
+            notifyDataSetChanged();
+        }
+        adapterChangesMissed = false;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelAsyncBinding();
+        scrollScheduler.cancel();
+        adapterChangesMissed = observedAdapter != null;
+        stopObservingAdapter();
+        if (tabViewPool != null && pager != null) {
+            scrapAllTabs();
+            releaseScrapTabs();
+            tabsReleased = true;
+            tabsBound = false;
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        fillVirtualTabs();
+    }
+
+    private void scrollToChild(int position, int offset) {
+
+        if (tabCount == 0 || !hasTabGeometry()) {
+            return;
+        }
+
+        scrollScheduler.setTarget(getScrollXForChild(position, offset));
+    }
+
+    private int getScrollXForChild(int position, int offset) {
+        int newScrollX = getTabLeft(position) + offset;
+
+        if (position > 0 || offset > 0) {
+            newScrollX -= scrollOffset;
+        }
+        return newScrollX;
+    }
+
+    /**
+     * 限制在HorizontalScrollView可以滚动的范围内，平滑滚动才能按实际距离计算
+     */
+    private int clampScrollX(int x) {
+        int maxScrollX = tabsContainer.getWidth() - (getWidth() - getPaddingLeft() - getPaddingRight());
+        return Math.max(0, Math.min(x, maxScrollX));
+    }
+
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        TraceCompat.beginSection("TabLayout#onDraw");
+        if (metricsListener == null) {
+            drawTabs(canvas);
+        } else {
+            long start = System.nanoTime();
+            drawTabs(canvas);
+            metricsListener.onFrameDrawn(System.nanoTime() - start, scrollCallbacksSinceFrame,
+                    restyledTabsSinceFrame, tabsContainer.getChildCount());
+            scrollCallbacksSinceFrame = 0;
+            restyledTabsSinceFrame = 0;
+        }
+        TraceCompat.endSection();
+    }
+
+    private void drawTabs(Canvas canvas) {
+        if (isInEditMode() || tabCount == 0 || !hasTabGeometry()) {
+            return;
+        }
+        final int height = getHeight();
+
+        //只绘制与视口相交的部分，绘制耗时与Tab总数无关
+        final int viewportLeft = getScrollX();
+        final int viewportRight = viewportLeft + getWidth();
+
+        drawUnderline(canvas, height, viewportLeft, viewportRight);
+
+        drawIndicator(canvas, height, viewportLeft, viewportRight);
+
+        drawDivider(canvas, height, viewportLeft, viewportRight);
+
+        if (drawsFlatText()) {
+            drawFlatText(canvas, height, viewportLeft, viewportRight);
+        }
+
+        if (asyncBindIncomplete) {
+            drawPlaceholders(canvas, height, viewportLeft, viewportRight);
+        }
+
+        if (computeFastScrollThumb()) {
+            fastScrollPaint.setColor(indicatorColor);
+            fastScrollPaint.setAlpha(fastScrollDragging ? 0xCC : 0x66);
+            canvas.drawRect(fastScrollThumb, fastScrollPaint);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        drawOverlays(canvas);
+    }
+
+    /**
+     * 绘制在Tab View之上的内容：渐变模式的标题和角标
+     */
+    private void drawOverlays(Canvas canvas) {
+        if (isInEditMode() || tabCount == 0 || !hasTabGeometry()) {
+            return;
+        }
+        if (drawsCrossfadeText()) {
+            drawCrossfadeText(canvas, getScrollX(), getScrollX() + getWidth());
+        }
+        //角标绘制在Tab View之上
+        if (badges.size() > 0) {
+            drawBadges(canvas, getScrollX(), getScrollX() + getWidth());
+        }
+    }
+
+    /**
+     * 开启渐变时绘制可见文字Tab的标题，颜色和缩放按滑动进度计算，文字和基线取自Tab View的排版结果
+     *
+     * @param canvas
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
+     */
+    private void drawCrossfadeText(Canvas canvas, int viewportLeft, int viewportRight) {
+        if (crossfadeTextPaint == null) {
+            crossfadeTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            crossfadeTextPaint.setTextAlign(Paint.Align.CENTER);
+        }
+        //Tab View的位置相对于容器，绘制在导航上时加上容器的偏移
+        int stripLeft = tabsContainer.getLeft();
+        int first = tabsContainer.findTabAt(viewportLeft - stripLeft);
+        int last = tabsContainer.findTabAt(viewportRight - stripLeft);
+        for (int i = first; i <= last; i++) {
+            View tab = getTabView(i);
+            if (!(tab instanceof TabTextView) || !((TabTextView) tab).isTextDrawnByParent()) {
+                continue;
+            }
+            TextView textTab = (TextView) tab;
+            Layout layout = textTab.getLayout();
+            if (layout == null) {
+                continue;
+            }
+            TextPaint tabPaint = textTab.getPaint();
+            crossfadeTextPaint.setTextSize(tabPaint.getTextSize());
+            crossfadeTextPaint.setTypeface(tabPaint.getTypeface());
+            crossfadeTextPaint.setFakeBoldText(tabPaint.isFakeBoldText());
+            crossfadeTextPaint.setTextSkewX(tabPaint.getTextSkewX());
+            crossfadeTextPaint.setColor(getTabTextColor(i));
+
+            CharSequence text = layout.getText();
+            float centerX = stripLeft + getTabLeft(i) + getTabWidth(i) / 2f;
+            float baseline = tabsContainer.getTop() + tab.getTop() + textTab.getBaseline();
+            float scale = getTabScale(i);
+            if (scale != 1f) {
+                canvas.save();
+                canvas.scale(scale, scale, centerX, tabsContainer.getTop() + tab.getTop() + tab.getHeight() / 2f);
+                canvas.drawText(text, 0, text.length(), centerX, baseline, crossfadeTextPaint);
+                canvas.restore();
+            } else {
+                canvas.drawText(text, 0, text.length(), centerX, baseline, crossfadeTextPaint);
+            }
+        }
+    }
+
+    /**
+     * 在可见Tab的右上角绘制角标
+     *
+     * @param canvas
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
+     */
+    private void drawBadges(Canvas canvas, int viewportLeft, int viewportRight) {
+        if (badgePaint == null) {
+            badgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            badgePaint.setColor(0xFFFF3B30);
+            badgeTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            badgeTextPaint.setColor(Color.WHITE);
+            badgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        }
+        badgeTextPaint.setTextSize(textSize * 0.75f);
+        float radius = badgeTextPaint.getTextSize() * 0.75f;
+        float baseline = radius - (badgeTextPaint.descent() + badgeTextPaint.ascent()) / 2;
+
+        int stripLeft = tabsContainer.getLeft();
+        int first = tabsContainer.findTabAt(viewportLeft - stripLeft);
+        int last = tabsContainer.findTabAt(viewportRight - stripLeft);
+        for (int i = 0; i < badges.size(); i++) {
+            int position = badges.keyAt(i);
+            if (position < first || position > last || position >= tabCount) {
+                continue;
+            }
+            String label = BADGE_LABELS[Math.min(badges.valueAt(i), MAX_BADGE_COUNT + 1)];
+            float halfWidth = Math.max(radius, badgeTextPaint.measureText(label) / 2 + radius / 2);
+            float centerX = stripLeft + getTabRight(position) - Math.max(tabPadding / 2f, halfWidth);
+            badgeRect.set(centerX - halfWidth, 0, centerX + halfWidth, radius * 2);
+            canvas.drawRoundRect(badgeRect, radius, radius, badgePaint);
+            canvas.drawText(label, centerX, baseline, badgeTextPaint);
+        }
+    }
+
+    /**
+     * 计算快速滚动滑块的位置，内容坐标，保存到fastScrollThumb
+     *
+     * @return 没有开启或导航不需要滚动时返回false
+     */
+    private boolean computeFastScrollThumb() {
+        if (!fastScrollEnabled || tabCount == 0 || !hasTabGeometry()) {
+            return false;
+        }
+        int viewport = getWidth() - getPaddingLeft() - getPaddingRight();
+        int maxScrollX = tabsContainer.getWidth() - viewport;
+        if (viewport <= 0 || maxScrollX <= 0) {
+            return false;
+        }
+        float thumbWidth = Math.max(fastScrollMinThumbWidth,
+                (float) viewport * viewport / tabsContainer.getWidth());
+        float thumbLeft = getScrollX() + (viewport - thumbWidth) * getScrollX() / maxScrollX;
+        fastScrollThumb.set(thumbLeft, 0, thumbLeft + thumbWidth, Math.max(indicatorHeight, 1));
+        return true;
+    }
 
-                // setAllCaps() is only available from API 14, so the upper case
-                // is made manually if we are on a
-                // pre-ICS-build
-                if (textAllCaps) {
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-                        tab.setAllCaps(true);
-                    } else {
-                        tab.setText(tab.getText().toString()
-                                .toUpperCase(locale));
+    /**
+     * 拖动快速滚动滑块，按下点在滑块所在的上半部分时开始拖动
+     *
+     * @return 事件是否由滑块处理
+     */
+    private boolean handleFastScroll(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (computeFastScrollThumb() && ev.getY() < getHeight() / 2
+                        && ev.getX() + getScrollX() >= fastScrollThumb.left - touchSlop
+                        && ev.getX() + getScrollX() <= fastScrollThumb.right + touchSlop) {
+                    fastScrollDragging = true;
+                    fastScrollDownX = ev.getX();
+                    fastScrollDownThumbLeft = fastScrollThumb.left - getScrollX();
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                    invalidate();
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (fastScrollDragging) {
+                    int viewport = getWidth() - getPaddingLeft() - getPaddingRight();
+                    int maxScrollX = tabsContainer.getWidth() - viewport;
+                    float trackWidth = viewport - fastScrollThumb.width();
+                    if (trackWidth > 0) {
+                        float thumbLeft = fastScrollDownThumbLeft + ev.getX() - fastScrollDownX;
+                        scrollScheduler.jumpTo((int) (thumbLeft / trackWidth * maxScrollX));
                     }
                 }
-                if (i == selectedPosition) {
-                    tab.setTextColor(textColorSelected);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (fastScrollDragging) {
+                    fastScrollDragging = false;
+                    invalidate();
+                    return true;
                 }
-            }
+                break;
         }
-
+        return fastScrollDragging;
     }
 
-    private void scrollToChild(int position, int offset) {
-
-        if (tabCount == 0) {
-            return;
+    /**
+     * 异步绑定未完成时，在还没有发布的Tab位置绘制占位条
+     */
+    private void drawPlaceholders(Canvas canvas, int height, int viewportLeft, int viewportRight) {
+        rectPaint.setColor(underlineColor);
+        float top = (height - textSize) / 2f;
+        float bottom = top + textSize;
+        int first = tabsContainer.findTabAt(viewportLeft);
+        int last = tabsContainer.findTabAt(viewportRight);
+        for (int i = first; i <= last; i++) {
+            if (!tabLoaded[i]) {
+                canvas.drawRect(getTabLeft(i) + tabPadding, top, getTabRight(i) - tabPadding,
+                        bottom, rectPaint);
+            }
         }
+    }
 
-        int newScrollX = tabsContainer.getChildAt(position).getLeft() + offset;
-
-        if (position > 0 || offset > 0) {
-            newScrollX -= scrollOffset;
+    /**
+     * 扁平文字模式下绘制可见Tab的标题，绘制在指示器和分隔线之上，与子View的层级一致
+     *
+     * @param canvas
+     * @param height
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
+     */
+    private void drawFlatText(Canvas canvas, int height, int viewportLeft, int viewportRight) {
+        if (flatTextPaint == null) {
+            flatTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            flatTextPaint.setTextAlign(Paint.Align.CENTER);
         }
-
-        if (newScrollX != lastScrollX) {
-            lastScrollX = newScrollX;
-            scrollTo(newScrollX, 0);
+        flatTextPaint.setTextSize(textSize);
+        flatTextPaint.setTypeface(measurePaint.getTypeface());
+
+        float baseline = (height - flatTextPaint.descent() - flatTextPaint.ascent()) / 2;
+        int first = tabsContainer.findTabAt(viewportLeft);
+        int last = tabsContainer.findTabAt(viewportRight);
+        for (int i = first; i <= last; i++) {
+            if (!isTabLoaded(i)) {
+                continue;
+            }
+            flatTextPaint.setColor(getTabTextColor(i));
+            float centerX = getTabLeft(i) + getTabWidth(i) / 2f;
+            float scale = getTabScale(i);
+            if (scale != 1f) {
+                canvas.save();
+                canvas.scale(scale, scale, centerX, height / 2f);
+                canvas.drawText(tabLabels[i], centerX, baseline, flatTextPaint);
+                canvas.restore();
+            } else {
+                canvas.drawText(tabLabels[i], centerX, baseline, flatTextPaint);
+            }
         }
-
     }
 
+    private void invalidateTab(int position) {
+        if (position < tabCount && hasTabGeometry()) {
+            int stripLeft = tabsContainer.getLeft();
+            invalidate(stripLeft + getTabLeft(position), 0, stripLeft + getTabRight(position), getHeight());
+        }
+    }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (isInEditMode() || tabCount == 0) {
-            return;
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        //用户触摸导航时停在当前位置，不再继续平滑滚动
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            scrollScheduler.abortAnimation();
         }
-        final int height = getHeight();
-
-        drawUnderline(canvas, height);
+        if (fastScrollEnabled && handleFastScroll(ev)) {
+            return true;
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
 
-        drawIndicator(canvas, height);
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (fastScrollEnabled && (fastScrollDragging || ev.getActionMasked() == MotionEvent.ACTION_DOWN)
+                && handleFastScroll(ev)) {
+            return true;
+        }
+        if (drawsFlatText() && hasTabGeometry() && tabCount > 0) {
+            handleFlatTap(ev);
+        }
+        return super.onTouchEvent(ev);
+    }
 
-        drawDivider(canvas, height);
+    /**
+     * 扁平文字模式下代替每个Tab的OnClickListener：移动距离不超过touchSlop的点击命中对应Tab
+     */
+    private void handleFlatTap(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                flatDownX = ev.getX();
+                flatDownY = ev.getY();
+                flatTapCandidate = true;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(ev.getX() - flatDownX) > touchSlop
+                        || Math.abs(ev.getY() - flatDownY) > touchSlop) {
+                    flatTapCandidate = false;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (flatTapCandidate) {
+                    int x = (int) ev.getX() + getScrollX();
+                    if (x < tabsContainer.getTotalWidth()) {
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                        pager.setCurrentItem(tabsContainer.findTabAt(x));
+                    }
+                }
+                flatTapCandidate = false;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                flatTapCandidate = false;
+                break;
+        }
     }
 
     /**
@@ -385,16 +2512,36 @@ public class TabLayout extends HorizontalScrollView {
      *
      * @param canvas
      * @param height
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
      */
-    private void drawDivider(Canvas canvas, int height) {
+    private void drawDivider(Canvas canvas, int height, int viewportLeft, int viewportRight) {
         // draw divider
 
-        dividerPaint.setColor(dividerColor);
-        for (int i = 0; i < tabCount - 1; i++) {
-            View tab = tabsContainer.getChildAt(i);
-            canvas.drawLine(tab.getRight(), dividerPadding, tab.getRight(),
-                    height - dividerPadding, dividerPaint);
+        //分隔线在Tab右边界，视口左边界恰好落在分隔线上时也要画前一个Tab的分隔线
+        int first = Math.max(0, tabsContainer.findTabAt(viewportLeft) - 1);
+        int last = Math.min(tabCount - 2, tabsContainer.findTabAt(viewportRight));
+        int lineCount = last - first + 1;
+        if (lineCount <= 0) {
+            return;
+        }
+        if (dividerPoints.length < lineCount * 4) {
+            dividerPoints = new float[lineCount * 4];
         }
+
+        float top = dividerPadding;
+        float bottom = height - dividerPadding;
+        int index = 0;
+        for (int i = first; i <= last; i++) {
+            float right = getTabRight(i);
+            dividerPoints[index++] = right;
+            dividerPoints[index++] = top;
+            dividerPoints[index++] = right;
+            dividerPoints[index++] = bottom;
+        }
+
+        dividerPaint.setColor(dividerColor);
+        canvas.drawLines(dividerPoints, 0, index, dividerPaint);
     }
 
     /**
@@ -402,13 +2549,15 @@ public class TabLayout extends HorizontalScrollView {
      *
      * @param canvas
      * @param height
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
      */
 
-    private void drawUnderline(Canvas canvas, int height) {
+    private void drawUnderline(Canvas canvas, int height, int viewportLeft, int viewportRight) {
         // draw underline
         rectPaint.setColor(underlineColor);
-        canvas.drawRect(0, height - underlineHeight, tabsContainer.getWidth(),
-                height, rectPaint);
+        canvas.drawRect(Math.max(0, viewportLeft), height - underlineHeight,
+                Math.min(tabsContainer.getWidth(), viewportRight), height, rectPaint);
     }
 
     /**
@@ -416,38 +2565,232 @@ public class TabLayout extends HorizontalScrollView {
      *
      * @param canvas
      * @param height
+     * @param viewportLeft  视口左边界，内容坐标
+     * @param viewportRight 视口右边界，内容坐标
      */
-    private void drawIndicator(Canvas canvas, int height) {
+    private void drawIndicator(Canvas canvas, int height, int viewportLeft, int viewportRight) {
         // draw indicator line
-        rectPaint.setColor(indicatorColor);
-        dividerPaint.setShader(mShader);
+        if (!computeIndicatorRect(height)) {
+            drawnIndicatorBounds.setEmpty();
+            return;
+        }
+        indicatorRect.roundOut(drawnIndicatorBounds);
+        if (indicatorRect.right < viewportLeft || indicatorRect.left > viewportRight) {
+            return;
+        }
+        indicator.draw(canvas, indicatorRect, indicatorColor);
+    }
 
+    /**
+     * 计算指示器在当前滑动进度下的位置，保存到indicatorRect
+     *
+     * @param height
+     * @return 指示器宽度设置不合适、不需要绘制时返回false
+     */
+    private boolean computeIndicatorRect(int height) {
         // default: line below current tab
-        View currentTab = tabsContainer.getChildAt(currentPosition);
-        float lineLeft = currentTab.getLeft();
-        float lineRight = currentTab.getRight();
-
-        // if there is an offset, start interpolating left and right coordinates
-        // between current and next tab
+        if (!computeIndicatorSpan(currentPosition)) {
+            return false;
+        }
+        float fromLeft = indicatorSpanLeft;
+        float fromRight = indicatorSpanRight;
 
-        int width = currentTab.getWidth();
+        // if there is an offset, let the indicator interpolate between current and next tab
+        float fraction = 0f;
         if (currentPositionOffset > 0f && currentPosition < tabCount - 1) {
+            if (!computeIndicatorSpan(currentPosition + 1)) {
+                return false;
+            }
+            fraction = currentPositionOffset;
+        }
+        indicator.computeBounds(fromLeft, fromRight, indicatorSpanLeft, indicatorSpanRight,
+                fraction, height - indicatorHeight, height, indicatorRect);
+        return true;
+    }
+
+    /**
+     * 计算position处指示器的左右边界，保存到indicatorSpanLeft/indicatorSpanRight
+     *
+     * @return 指示器宽度设置不合适、不需要绘制时返回false
+     */
+    private boolean computeIndicatorSpan(int position) {
+        float left = getTabLeft(position);
+        float right = getTabRight(position);
+        int width = getTabWidth(position);
+        //绘制选中tab指示器底部下划线，默认为当前Tab宽度的一半
+        if (indicatorWidth == -1) {
+            indicatorSpanLeft = left + width / 4;
+            indicatorSpanRight = right - width / 4;
+        } else if (indicatorWidth < width && indicatorWidth > 0) {
+            int offset = width - indicatorWidth;
+            indicatorSpanLeft = left + offset / 2;
+            indicatorSpanRight = right - offset / 2;
+        } else {
+            return false;
+        }
+        return true;
+    }
 
-            View nextTab = tabsContainer.getChildAt(currentPosition + 1);
-            final float nextTabLeft = nextTab.getLeft();
-            final float nextTabRight = nextTab.getRight();
+    /**
+     * 只重绘指示器上一次绘制的范围和新位置的并集，不重绘整个导航
+     */
+    private void invalidateIndicator() {
+        indicatorDirty.set(drawnIndicatorBounds);
+        if (hasTabGeometry() && tabCount > 0 && computeIndicatorRect(getHeight())) {
+            indicatorRect.roundOut(drawnIndicatorBounds);
+            indicatorDirty.union(drawnIndicatorBounds);
+        }
+        if (!indicatorDirty.isEmpty()) {
+            invalidate(indicatorDirty);
+        }
+    }
 
-            lineLeft = (currentPositionOffset * nextTabLeft + (1f - currentPositionOffset) * lineLeft);
-            lineRight = (currentPositionOffset * nextTabRight + (1f - currentPositionOffset) * lineRight);
+    /**
+     * 拖动过程中把Tab行放到硬件层，滑动时只合成缓存，不重绘每个Tab
+     *
+     * @param dragging
+     */
+    private void updateTabLayer(boolean dragging) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        boolean useLayer = dragging && isHardwareAccelerated()
+                && tabsContainer.getWidth() <= getWidth() * MAX_TAB_LAYER_VIEWPORTS;
+        int layerType = useLayer ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE;
+        if (tabsContainer.getLayerType() != layerType) {
+            tabsContainer.setLayerType(layerType, null);
+        }
+    }
 
-            width = nextTab.getWidth();
+    /**
+     * 把同一帧内的多次滚动和指示器重绘请求合并，在下一帧的动画回调中执行一次。
+     * 不是用户拖动引起的、超过半个视口的滚动按时间平滑完成，用户触摸导航或开始拖动ViewPager时中断
+     */
+    private class ScrollScheduler implements Runnable {
+
+        private boolean frameScheduled = false;
+        private boolean scrollPending = false;
+        private boolean indicatorPending = false;
+        private int targetX;
+
+        private boolean animating = false;
+        private int startX;
+        private long startTime;
+        private int duration;
+
+        void setTarget(int x) {
+            targetX = clampScrollX(x);
+            int distance = Math.abs(targetX - getScrollX());
+            //动画过程中目标变化时继续向新目标靠近，不重新开始
+            if (!animating && pagerScrollState != ViewPager.SCROLL_STATE_DRAGGING
+                    && distance > getWidth() / 2) {
+                startAnimation(distance);
+            }
+            scrollPending = true;
+            schedule();
         }
-        //绘制选中tab指示器底部下划线，默认为当前Tab宽度的一半
-        if (indicatorWidth == -1)
-            canvas.drawRect(lineLeft + width / 4, height - indicatorHeight, lineRight - width / 4, height, rectPaint);
-        else if (indicatorWidth < width && indicatorWidth > 0) {
-            int offset = width - indicatorWidth;
-            canvas.drawRect(lineLeft + offset / 2, height - indicatorHeight, lineRight - offset / 2, height, rectPaint);
+
+        /**
+         * 不论距离远近都平滑滚动到x
+         */
+        void smoothScrollTo(int x) {
+            targetX = clampScrollX(x);
+            startAnimation(Math.abs(targetX - getScrollX()));
+            scrollPending = true;
+            schedule();
+        }
+
+        private void startAnimation(int distance) {
+            animating = true;
+            startX = getScrollX();
+            startTime = AnimationUtils.currentAnimationTimeMillis();
+            duration = Math.min(MAX_SMOOTH_SCROLL_DURATION,
+                    MAX_SMOOTH_SCROLL_DURATION / 2 + distance * MAX_SMOOTH_SCROLL_DURATION / (4 * Math.max(1, getWidth())));
+        }
+
+        void invalidateIndicator() {
+            indicatorPending = true;
+            schedule();
+        }
+
+        /**
+         * 立即滚动到x，放弃尚未执行的滚动
+         */
+        void jumpTo(int x) {
+            animating = false;
+            scrollPending = false;
+            targetX = clampScrollX(x);
+            scrollTo(targetX, 0);
+        }
+
+        void abortAnimation() {
+            animating = false;
+            scrollPending = false;
+        }
+
+        /**
+         * 移除窗口时直接完成尚未执行的滚动
+         */
+        void cancel() {
+            removeCallbacks(this);
+            frameScheduled = false;
+            if (animating || scrollPending) {
+                scrollTo(targetX, 0);
+            }
+            animating = false;
+            scrollPending = false;
+            indicatorPending = false;
+        }
+
+        private void schedule() {
+            if (!frameScheduled) {
+                frameScheduled = true;
+                ViewCompat.postOnAnimation(TabLayout.this, this);
+            }
+        }
+
+        @Override
+        public void run() {
+            TraceCompat.beginSection("TabLayout#scrollFrame");
+            frameScheduled = false;
+            int oldScrollX = getScrollX();
+
+            if (animating) {
+                float t = (AnimationUtils.currentAnimationTimeMillis() - startTime) / (float) duration;
+                if (t >= 1f) {
+                    animating = false;
+                    scrollTo(targetX, 0);
+                } else {
+                    float fraction = 1f - (1f - t) * (1f - t) * (1f - t);
+                    scrollTo(startX + Math.round((targetX - startX) * fraction), 0);
+                    schedule();
+                }
+            } else if (scrollPending) {
+                scrollTo(targetX, 0);
+            }
+            scrollPending = false;
+
+            //导航发生滚动时已经整体重绘，否则只重绘指示器经过的区域
+            if (indicatorPending && getScrollX() == oldScrollX) {
+                TabLayout.this.invalidateIndicator();
+            }
+            indicatorPending = false;
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * 只有前后两个选中Tab的颜色变化，不需要重新设置全部样式
+     */
+    private void setSelectedPosition(int position) {
+        int previousPosition = selectedPosition;
+        View previousSelected = getTabView(previousPosition);
+        selectedPosition = position;
+        refreshSelectedTab(previousSelected);
+        updateTabScale();
+        if (drawsFlatText() || drawsCrossfadeText()) {
+            invalidateTab(previousPosition);
+            invalidateTab(position);
         }
     }
 
@@ -456,43 +2799,62 @@ public class TabLayout extends HorizontalScrollView {
         @Override
         public void onPageScrolled(int position, float positionOffset,
                                    int positionOffsetPixels) {
+            TraceCompat.beginSection("TabLayout#onPageScrolled");
+            int previousPosition = currentPosition;
             currentPosition = position;
             currentPositionOffset = positionOffset;
+            if (textCrossfade && (drawsFlatText() || drawsCrossfadeText())) {
+                invalidateCrossfadeTabs(previousPosition);
+            }
+            scrollCallbacksSinceFrame++;
+            if (eventRecorder != null) {
+                eventRecorder.record(TabEventRecorder.EVENT_PAGE_SCROLLED, position, positionOffset, pagerScrollState);
+            }
 
-            scrollToChild(position, (int) (positionOffset * tabsContainer
-                    .getChildAt(position).getWidth()));
-
-            invalidate();
+            //同一帧内的多次回调合并为一次滚动和重绘
+            if (hasTabGeometry()) {
+                scrollToChild(position, (int) (positionOffset * getTabWidth(position)));
+            }
+            scrollScheduler.invalidateIndicator();
 
             if (delegatePageListener != null) {
                 delegatePageListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
             }
 
-            Log.e(TAG, positionOffset + "");
-            int colors[] = new int[]{Color.GREEN, Color.TRANSPARENT};
-
-            //设置切换过程中的渐变色
-            mShader = new LinearGradient(0, 0, positionOffset, 90, colors, null, Shader.TileMode.REPEAT);
+            //设置切换过程中的渐变色，渐变只在第一次滚动时创建，之后复用
+            if (mShader == null) {
+                mShader = new LinearGradient(0, 0, 0, 90, GRADIENT_COLORS, null, Shader.TileMode.REPEAT);
+                dividerPaint.setShader(mShader);
+            }
+            TraceCompat.endSection();
         }
 
         @Override
         public void onPageScrollStateChanged(int state) {
 
+            pagerScrollState = state;
+            if (eventRecorder != null) {
+                eventRecorder.record(TabEventRecorder.EVENT_SCROLL_STATE_CHANGED, pager.getCurrentItem(), 0f, state);
+            }
+            if (state == ViewPager.SCROLL_STATE_DRAGGING) {
+                scrollScheduler.abortAnimation();
+            }
             if (state == ViewPager.SCROLL_STATE_IDLE) {
                 scrollToChild(pager.getCurrentItem(), 0);
             }
+            updateTabLayer(state != ViewPager.SCROLL_STATE_IDLE);
 
             if (delegatePageListener != null) {
                 delegatePageListener.onPageScrollStateChanged(state);
             }
-
-            Log.e(TAG, "currentState: " + state);
         }
 
         @Override
         public void onPageSelected(int position) {
-            selectedPosition = position;
-            updateTabStyles();
+            if (eventRecorder != null) {
+                eventRecorder.record(TabEventRecorder.EVENT_PAGE_SELECTED, position, 0f, pagerScrollState);
+            }
+            setSelectedPosition(position);
             if (delegatePageListener != null) {
                 delegatePageListener.onPageSelected(position);
             }
@@ -506,6 +2868,16 @@ public class TabLayout extends HorizontalScrollView {
         SavedState savedState = (SavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
         currentPosition = savedState.currentPosition;
+        currentPositionOffset = 0f;
+        if (savedState.selectedPosition != selectedPosition && savedState.selectedPosition < tabCount) {
+            setSelectedPosition(savedState.selectedPosition);
+        }
+
+        //在恢复后的第一次布局中直接滚动到保存的位置，不再等待额外的布局回调
+        restoredScrollX = savedState.scrollX;
+        restoredFingerprint = savedState.tabsFingerprint;
+        restoredTotalWidth = savedState.totalWidth;
+        scheduleScrollToCurrent();
         requestLayout();
     }
 
@@ -514,11 +2886,21 @@ public class TabLayout extends HorizontalScrollView {
         Parcelable superState = super.onSaveInstanceState();
         SavedState savedState = new SavedState(superState);
         savedState.currentPosition = currentPosition;
+        savedState.selectedPosition = selectedPosition;
+        if (tabCount > 0 && hasTabGeometry()) {
+            savedState.scrollX = getScrollX();
+            savedState.tabsFingerprint = getTabsFingerprint();
+            savedState.totalWidth = tabsContainer.getTotalWidth();
+        }
         return savedState;
     }
 
     static class SavedState extends BaseSavedState {
         int currentPosition;
+        int selectedPosition;
+        int scrollX = -1;
+        int tabsFingerprint;
+        int totalWidth;
 
         public SavedState(Parcelable superState) {
             super(superState);
@@ -527,12 +2909,20 @@ public class TabLayout extends HorizontalScrollView {
         private SavedState(Parcel in) {
             super(in);
             currentPosition = in.readInt();
+            selectedPosition = in.readInt();
+            scrollX = in.readInt();
+            tabsFingerprint = in.readInt();
+            totalWidth = in.readInt();
         }
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
             super.writeToParcel(dest, flags);
             dest.writeInt(currentPosition);
+            dest.writeInt(selectedPosition);
+            dest.writeInt(scrollX);
+            dest.writeInt(tabsFingerprint);
+            dest.writeInt(totalWidth);
         }
 
         public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
@@ -548,6 +2938,195 @@ public class TabLayout extends HorizontalScrollView {
         };
     }
 
+    /**
+     * 导航样式的批量修改，由{@link #editStyle()}创建，修改在{@link #apply()}之前不生效
+     */
+    public final class StyleEditor {
+        private int indicatorColor = TabLayout.this.indicatorColor;
+        private int underlineColor = TabLayout.this.underlineColor;
+        private int dividerColor = TabLayout.this.dividerColor;
+
+        private boolean shouldExpand = TabLayout.this.shouldExpand;
+        private boolean textAllCaps = TabLayout.this.textAllCaps;
+
+        private int scrollOffset = TabLayout.this.scrollOffset;
+        private int indicatorHeight = TabLayout.this.indicatorHeight;
+        private int indicatorWidth = TabLayout.this.indicatorWidth;
+        private int underlineHeight = TabLayout.this.underlineHeight;
+        private int dividerPadding = TabLayout.this.dividerPadding;
+        private int tabPadding = TabLayout.this.tabPadding;
+        private int dividerWidth = TabLayout.this.dividerWidth;
+
+        private int textSize = TabLayout.this.textSize;
+        private int textColor = TabLayout.this.textColor;
+        private int textColorSelected = TabLayout.this.textColorSelected;
+        private int tabBackgroundResId = TabLayout.this.tabBackgroundResId;
+        private Typeface tabTypeface = TabLayout.this.tabTypeface;
+        private int tabTypefaceStyle = TabLayout.this.tabTypefaceStyle;
+        private TabIndicator indicator = TabLayout.this.indicator;
+
+        private StyleEditor() {
+        }
+
+        public StyleEditor setIndicator(TabIndicator indicator) {
+            this.indicator = indicator;
+            return this;
+        }
+
+        public StyleEditor setIndicatorColor(int indicatorColor) {
+            this.indicatorColor = indicatorColor;
+            return this;
+        }
+
+        public StyleEditor setUnderlineColor(int underlineColor) {
+            this.underlineColor = underlineColor;
+            return this;
+        }
+
+        public StyleEditor setDividerColor(int dividerColor) {
+            this.dividerColor = dividerColor;
+            return this;
+        }
+
+        public StyleEditor setShouldExpand(boolean shouldExpand) {
+            this.shouldExpand = shouldExpand;
+            return this;
+        }
+
+        public StyleEditor setTextAllCaps(boolean textAllCaps) {
+            this.textAllCaps = textAllCaps;
+            return this;
+        }
+
+        public StyleEditor setScrollOffset(int scrollOffset) {
+            this.scrollOffset = scrollOffset;
+            return this;
+        }
+
+        public StyleEditor setIndicatorHeight(int indicatorHeight) {
+            this.indicatorHeight = indicatorHeight;
+            return this;
+        }
+
+        public StyleEditor setIndicatorWidth(int indicatorWidth) {
+            this.indicatorWidth = indicatorWidth;
+            return this;
+        }
+
+        public StyleEditor setUnderlineHeight(int underlineHeight) {
+            this.underlineHeight = underlineHeight;
+            return this;
+        }
+
+        public StyleEditor setDividerPadding(int dividerPadding) {
+            this.dividerPadding = dividerPadding;
+            return this;
+        }
+
+        public StyleEditor setTabPadding(int tabPadding) {
+            this.tabPadding = tabPadding;
+            return this;
+        }
+
+        public StyleEditor setDividerWidth(int dividerWidth) {
+            this.dividerWidth = dividerWidth;
+            return this;
+        }
+
+        public StyleEditor setTextSize(int textSize) {
+            this.textSize = textSize;
+            return this;
+        }
+
+        public StyleEditor setTextColor(int textColor) {
+            this.textColor = textColor;
+            return this;
+        }
+
+        public StyleEditor setTextColorSelected(int textColorSelected) {
+            this.textColorSelected = textColorSelected;
+            return this;
+        }
+
+        public StyleEditor setTabBackgroundResId(int tabBackgroundResId) {
+            this.tabBackgroundResId = tabBackgroundResId;
+            return this;
+        }
+
+        public StyleEditor setTypeface(Typeface typeface, int style) {
+            this.tabTypeface = typeface;
+            this.tabTypefaceStyle = style;
+            return this;
+        }
+
+        /**
+         * 与当前样式比较，只处理发生变化的部分
+         */
+        public void apply() {
+            TabLayout layout = TabLayout.this;
+            boolean paddingChanged = tabPadding != layout.tabPadding;
+            boolean expandChanged = shouldExpand != layout.shouldExpand;
+            boolean allCapsChanged = textAllCaps != layout.textAllCaps;
+            //影响Tab宽度的修改
+            boolean layoutChanged = paddingChanged || expandChanged || allCapsChanged
+                    || textSize != layout.textSize || tabTypeface != layout.tabTypeface
+                    || tabTypefaceStyle != layout.tabTypefaceStyle;
+            boolean backgroundChanged = tabBackgroundResId != layout.tabBackgroundResId;
+            boolean tabsChanged = layoutChanged || backgroundChanged
+                    || textColor != layout.textColor || textColorSelected != layout.textColorSelected;
+            boolean scrollChanged = scrollOffset != layout.scrollOffset;
+            boolean paintChanged = indicatorColor != layout.indicatorColor
+                    || underlineColor != layout.underlineColor || dividerColor != layout.dividerColor
+                    || indicatorHeight != layout.indicatorHeight || indicatorWidth != layout.indicatorWidth
+                    || underlineHeight != layout.underlineHeight || dividerPadding != layout.dividerPadding
+                    || dividerWidth != layout.dividerWidth || indicator != layout.indicator;
+            if (!tabsChanged && !scrollChanged && !paintChanged) {
+                return;
+            }
+
+            layout.indicatorColor = indicatorColor;
+            layout.underlineColor = underlineColor;
+            layout.dividerColor = dividerColor;
+            layout.shouldExpand = shouldExpand;
+            layout.textAllCaps = textAllCaps;
+            layout.scrollOffset = scrollOffset;
+            layout.indicatorHeight = indicatorHeight;
+            layout.indicatorWidth = indicatorWidth;
+            layout.underlineHeight = underlineHeight;
+            layout.dividerPadding = dividerPadding;
+            layout.tabPadding = tabPadding;
+            layout.dividerWidth = dividerWidth;
+            layout.textSize = textSize;
+            layout.textColor = textColor;
+            layout.textColorSelected = textColorSelected;
+            layout.tabBackgroundResId = tabBackgroundResId;
+            layout.tabTypeface = tabTypeface;
+            layout.tabTypefaceStyle = tabTypefaceStyle;
+            layout.indicator = indicator;
+            dividerPaint.setStrokeWidth(dividerWidth);
+
+            if (layoutChanged && asyncBindRunning) {
+                //后台线程按旧样式测量，重新开始绑定
+                rebuildTabs();
+            } else if (tabsChanged && !layoutChanged && !backgroundChanged) {
+                recolorTabViews();
+            } else if (tabsChanged) {
+                restyleTabViews(paddingChanged, expandChanged, allCapsChanged);
+                if (layoutChanged) {
+                    virtualGeometryDirty = true;
+                    tabsContainer.requestLayout();
+                    if (pager != null) {
+                        scheduleScrollToCurrent();
+                    }
+                }
+            }
+            if (scrollChanged && !layoutChanged) {
+                scrollToChild(currentPosition, 0);
+            }
+            invalidate();
+        }
+    }
+
     public static class Builder {
         private Context context;
         private int indicatorColor = 0xFF666666;
@@ -556,6 +3135,13 @@ public class TabLayout extends HorizontalScrollView {
 
         private boolean shouldExpand = false;
         private boolean textAllCaps = true;
+        private boolean virtualized = false;
+        private boolean flatText = false;
+        private boolean asyncBinding = false;
+        private TabViewPool tabViewPool;
+        private TabIndicator indicator;
+        private boolean textCrossfade = false;
+        private float selectedTextScale = 1f;
 
         private int scrollOffset = 52;
         private int indicatorHeight = 4;
@@ -655,6 +3241,41 @@ public class TabLayout extends HorizontalScrollView {
             return this;
         }
 
+        public Builder setVirtualized(boolean virtualized) {
+            this.virtualized = virtualized;
+            return this;
+        }
+
+        public Builder setFlatText(boolean flatText) {
+            this.flatText = flatText;
+            return this;
+        }
+
+        public Builder setAsyncBinding(boolean asyncBinding) {
+            this.asyncBinding = asyncBinding;
+            return this;
+        }
+
+        public Builder setTabViewPool(TabViewPool tabViewPool) {
+            this.tabViewPool = tabViewPool;
+            return this;
+        }
+
+        public Builder setIndicator(TabIndicator indicator) {
+            this.indicator = indicator;
+            return this;
+        }
+
+        public Builder setTextCrossfadeEnabled(boolean textCrossfade) {
+            this.textCrossfade = textCrossfade;
+            return this;
+        }
+
+        public Builder setSelectedTextScale(float selectedTextScale) {
+            this.selectedTextScale = selectedTextScale;
+            return this;
+        }
+
         public TabLayout create() {
             TabLayout layout = new TabLayout(context);
             layout.indicatorColor = indicatorColor;
@@ -663,6 +3284,15 @@ public class TabLayout extends HorizontalScrollView {
 
             layout.shouldExpand = shouldExpand;
             layout.textAllCaps = textAllCaps;
+            layout.virtualized = virtualized;
+            layout.flatText = flatText;
+            layout.asyncBinding = asyncBinding;
+            layout.tabViewPool = tabViewPool;
+            if (indicator != null) {
+                layout.indicator = indicator;
+            }
+            layout.textCrossfade = textCrossfade;
+            layout.selectedTextScale = selectedTextScale;
 
             layout.scrollOffset = scrollOffset;
             layout.indicatorHeight = indicatorHeight;
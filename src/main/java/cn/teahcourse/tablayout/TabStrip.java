@@ -0,0 +1,473 @@
+package cn.teahcourse.tablayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import java.util.Arrays;
+
+/**
+ * TabLayout内部使用的Tab容器。
+ * <p>
+ * 容器维护一份Tab几何信息表（左边界、宽度），指示器、分隔线和滚动计算都只读这张表，
+ * 不再逐帧访问子View。普通模式下按内容宽度从左到右排列子View，每次布局后从子View重建一次表；
+ * 虚拟化模式下根据{@link #setTabWidths(int[], int, int)}传入的宽度表给出整条导航的宽度，
+ * 只把视口附近的Tab作为子View摆放到对应位置。
+ */
+class TabStrip extends LinearLayout {
+
+    private boolean virtualized = false;
+
+    private int tabCount = 0;
+    private int[] tabWidths = new int[0];
+    /**
+     * 宽度的前缀和，tabLefts[i]为第i个Tab的左边界，tabLefts[tabCount]为总宽度
+     */
+    private int[] tabLefts = new int[1];
+
+    //普通模式的测量缓存：子View按内容测量的宽度，内容和高度约束不变时不再重新测量
+    private View[] measuredChildren = new View[0];
+    private int[] contentWidths = new int[0];
+    private int[] contentHeightSpecs = new int[0];
+    private int[] contentLayoutGenerations = new int[0];
+    private int[] childWidths = new int[0];
+    private int layoutGeneration = 0;
+    //等分模式由TabLayout直接给出内容宽度，expandWidth为外层视口宽度
+    private ContentWidthProvider contentWidthProvider;
+    private int expandWidth = 0;
+
+    //选中后放大的Tab，绘制时缩放画布，不修改子View
+    private int scaledPosition = -1;
+    private float scale = 1f;
+
+    TabStrip(Context context) {
+        super(context);
+        setOrientation(LinearLayout.HORIZONTAL);
+    }
+
+    void setVirtualized(boolean virtualized) {
+        this.virtualized = virtualized;
+    }
+
+    boolean isVirtualized() {
+        return virtualized;
+    }
+
+    /**
+     * 设置虚拟化模式下每个Tab的宽度，并重新计算左边界前缀和
+     *
+     * @param widths      每个Tab内容所需的宽度
+     * @param count       Tab数量
+     * @param expandWidth 大于0时，总宽度不足expandWidth则等分该宽度，与weight效果一致
+     */
+    void setTabWidths(int[] widths, int count, int expandWidth) {
+        ensureCapacity(count);
+        System.arraycopy(widths, 0, tabWidths, 0, count);
+        tabCount = count;
+
+        if (expandWidth > 0 && count > 0) {
+            int totalWidth = 0;
+            for (int i = 0; i < count; i++) {
+                totalWidth += tabWidths[i];
+            }
+            if (totalWidth < expandWidth) {
+                int width = expandWidth / count;
+                for (int i = 0; i < count; i++) {
+                    tabWidths[i] = width;
+                }
+                tabWidths[count - 1] += expandWidth - width * count;
+            }
+        }
+
+        tabLefts[0] = 0;
+        for (int i = 0; i < count; i++) {
+            tabLefts[i + 1] = tabLefts[i] + tabWidths[i];
+        }
+    }
+
+    /**
+     * 普通模式下每次布局后从子View读取位置，重建几何信息表
+     */
+    private void captureChildGeometry() {
+        int count = getChildCount();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            tabLefts[i] = child.getLeft();
+            tabWidths[i] = child.getWidth();
+        }
+        tabLefts[count] = count > 0 ? tabLefts[count - 1] + tabWidths[count - 1] : 0;
+        tabCount = count;
+    }
+
+    private void ensureCapacity(int count) {
+        if (tabWidths.length < count) {
+            tabWidths = new int[count];
+            tabLefts = new int[count + 1];
+        }
+    }
+
+    /**
+     * 几何信息表中的Tab数量，与TabLayout的tabCount不一致时说明表还未更新
+     */
+    int getTabCount() {
+        return tabCount;
+    }
+
+    int getTabLeft(int position) {
+        return tabLefts[position];
+    }
+
+    int getTabRight(int position) {
+        return tabLefts[position] + tabWidths[position];
+    }
+
+    int getTabWidth(int position) {
+        return tabWidths[position];
+    }
+
+    int getTotalWidth() {
+        return tabLefts[tabCount];
+    }
+
+    /**
+     * 二分查找x坐标所在的Tab，超出范围时返回首尾位置
+     */
+    int findTabAt(int x) {
+        if (tabCount == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = tabCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (tabLefts[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 返回子View对应的Tab位置
+     */
+    int positionOf(View child) {
+        if (virtualized) {
+            return ((TabLayoutParams) child.getLayoutParams()).position;
+        }
+        return indexOfChild(child);
+    }
+
+    /**
+     * 虚拟化模式下Tab前面插入或删除了其他Tab，更新它绑定的位置，下次布局时生效
+     */
+    void setTabPosition(View child, int position) {
+        ((TabLayoutParams) child.getLayoutParams()).position = position;
+    }
+
+    /**
+     * 虚拟化模式下把Tab直接摆放到position对应位置，不触发requestLayout
+     */
+    void attachTab(View child, int position) {
+        //从普通模式或其他TabLayout复用的View可能带着LinearLayout的布局参数
+        TabLayoutParams lp = child.getLayoutParams() instanceof TabLayoutParams
+                ? (TabLayoutParams) child.getLayoutParams() : new TabLayoutParams();
+        lp.position = position;
+        addViewInLayout(child, -1, lp, true);
+
+        int left = tabLefts[position];
+        int width = tabWidths[position];
+        int height = getHeight();
+        child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        child.layout(left, 0, left + width, height);
+        invalidate(left, 0, left + width, height);
+    }
+
+    /**
+     * 设置position处的Tab绘制时的缩放比例，position为-1时不缩放
+     */
+    void setScaledTab(int position, float scale) {
+        if (position == scaledPosition && scale == this.scale) {
+            return;
+        }
+        scaledPosition = position;
+        this.scale = scale;
+        invalidate();
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        float childScale = getChildScale(child);
+        if (childScale == 1f) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        int saveCount = canvas.save();
+        canvas.scale(childScale, childScale, (child.getLeft() + child.getRight()) / 2f,
+                (child.getTop() + child.getBottom()) / 2f);
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return more;
+    }
+
+    /**
+     * 按左边界在几何信息表中判断子View是否是需要缩放的Tab，不需要查找子View的索引
+     */
+    private float getChildScale(View child) {
+        if (scaledPosition < 0 || scaledPosition >= tabCount) {
+            return 1f;
+        }
+        if (child.getLeft() == tabLefts[scaledPosition] && child.getWidth() == tabWidths[scaledPosition]) {
+            return scale;
+        }
+        return 1f;
+    }
+
+    void detachTab(View child) {
+        invalidate(child.getLeft(), 0, child.getRight(), getHeight());
+        removeViewInLayout(child);
+    }
+
+    /**
+     * 设置普通模式下计算Tab内容宽度的方式，为null时按内容测量子View
+     */
+    void setContentWidthProvider(ContentWidthProvider provider) {
+        if (contentWidthProvider != provider) {
+            contentWidthProvider = provider;
+            //两种方式得到的内容宽度不能混用
+            Arrays.fill(measuredChildren, null);
+        }
+    }
+
+    /**
+     * 外层视口的宽度，按UNSPECIFIED测量时用于等分，不知道时为0
+     */
+    void setExpandWidth(int width) {
+        expandWidth = width;
+    }
+
+    /**
+     * 等分模式的测量：内容宽度由{@link ContentWidthProvider}计算，不测量子View，得到最终宽度后
+     * 每个Tab只测量一次。外层HorizontalScrollView按UNSPECIFIED测量时用expandWidth等分，
+     * 测量结果不小于视口，fillViewport不会再按视口宽度测量一次
+     */
+    private void measureExpandedTabs(int widthMeasureSpec, int heightMeasureSpec) {
+        int count = getChildCount();
+        ensureMeasureCapacity(count);
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+
+        int totalWidth = 0;
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                childWidths[i] = 0;
+                continue;
+            }
+            boolean contentChanged = child.isLayoutRequested()
+                    && contentLayoutGenerations[i] != layoutGeneration;
+            if (measuredChildren[i] != child || contentChanged) {
+                measuredChildren[i] = child;
+                contentWidths[i] = contentWidthProvider.getContentWidth(i);
+                contentLayoutGenerations[i] = layoutGeneration;
+                //不是有效的MeasureSpec，保证下面按最终宽度重新测量
+                contentHeightSpecs[i] = -1;
+            }
+            childWidths[i] = contentWidths[i];
+            totalWidth += contentWidths[i];
+            visibleCount++;
+        }
+        Arrays.fill(measuredChildren, count, measuredChildren.length, null);
+
+        int availableWidth = (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY
+                ? MeasureSpec.getSize(widthMeasureSpec) : expandWidth) - horizontalPadding;
+        if (visibleCount > 0 && totalWidth < availableWidth) {
+            int width = availableWidth / visibleCount;
+            int last = -1;
+            for (int i = 0; i < count; i++) {
+                if (getChildAt(i).getVisibility() != GONE) {
+                    childWidths[i] = width;
+                    last = i;
+                }
+            }
+            childWidths[last] += availableWidth - width * visibleCount;
+            totalWidth = availableWidth;
+        }
+
+        int maxHeight = 0;
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, verticalPadding,
+                    child.getLayoutParams().height);
+            if (childHeightSpec != contentHeightSpecs[i] || child.getMeasuredWidth() != childWidths[i]) {
+                child.measure(MeasureSpec.makeMeasureSpec(childWidths[i], MeasureSpec.EXACTLY),
+                        childHeightSpec);
+                contentHeightSpecs[i] = childHeightSpec;
+            }
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight());
+        }
+
+        setMeasuredDimension(resolveSize(totalWidth + horizontalPadding, widthMeasureSpec),
+                resolveSize(maxHeight + verticalPadding, heightMeasureSpec));
+    }
+
+    /**
+     * 普通模式的测量，代替LinearLayout按weight的两次测量：每个Tab按内容测量一次，
+     * 宽度为精确值且内容总宽度不足时，带weight的导航等分该宽度，与weight等分的效果一致
+     */
+    private void measureTabs(int widthMeasureSpec, int heightMeasureSpec) {
+        int count = getChildCount();
+        ensureMeasureCapacity(count);
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+
+        int totalWidth = 0;
+        int maxHeight = 0;
+        int visibleCount = 0;
+        boolean expand = false;
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                childWidths[i] = 0;
+                continue;
+            }
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, verticalPadding, lp.height);
+            //本次布局前已经测量过的子View即使仍处于请求布局的状态也不再测量
+            boolean contentChanged = child.isLayoutRequested()
+                    && contentLayoutGenerations[i] != layoutGeneration;
+            if (measuredChildren[i] != child || contentChanged || childHeightSpec != contentHeightSpecs[i]) {
+                child.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), childHeightSpec);
+                measuredChildren[i] = child;
+                contentWidths[i] = child.getMeasuredWidth();
+                contentHeightSpecs[i] = childHeightSpec;
+                contentLayoutGenerations[i] = layoutGeneration;
+            }
+            childWidths[i] = contentWidths[i];
+            totalWidth += contentWidths[i];
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight());
+            visibleCount++;
+            expand |= lp.weight > 0;
+        }
+        //不再持有已经移除的子View
+        Arrays.fill(measuredChildren, count, measuredChildren.length, null);
+
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding;
+        boolean exactWidth = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY;
+        if (expand && exactWidth && visibleCount > 0 && totalWidth < widthSize) {
+            int width = widthSize / visibleCount;
+            int last = -1;
+            for (int i = 0; i < count; i++) {
+                if (getChildAt(i).getVisibility() != GONE) {
+                    childWidths[i] = width;
+                    last = i;
+                }
+            }
+            childWidths[last] += widthSize - width * visibleCount;
+            totalWidth = widthSize;
+        }
+
+        //只有宽度与按内容测量的结果不同的子View需要按最终宽度再测量
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && child.getMeasuredWidth() != childWidths[i]) {
+                int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, verticalPadding,
+                        child.getLayoutParams().height);
+                child.measure(MeasureSpec.makeMeasureSpec(childWidths[i], MeasureSpec.EXACTLY),
+                        childHeightSpec);
+            }
+        }
+
+        setMeasuredDimension(resolveSize(totalWidth + horizontalPadding, widthMeasureSpec),
+                resolveSize(maxHeight + verticalPadding, heightMeasureSpec));
+    }
+
+    private void ensureMeasureCapacity(int count) {
+        if (measuredChildren.length < count) {
+            measuredChildren = new View[count];
+            contentWidths = new int[count];
+            contentHeightSpecs = new int[count];
+            contentLayoutGenerations = new int[count];
+            childWidths = new int[count];
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!virtualized) {
+            if (contentWidthProvider != null) {
+                measureExpandedTabs(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                measureTabs(widthMeasureSpec, heightMeasureSpec);
+            }
+            return;
+        }
+
+        int width = getTotalWidth();
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY) {
+            width = Math.max(width, MeasureSpec.getSize(widthMeasureSpec));
+        }
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        setMeasuredDimension(width, height);
+
+        int childHeightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int position = ((TabLayoutParams) child.getLayoutParams()).position;
+            child.measure(MeasureSpec.makeMeasureSpec(tabWidths[position], MeasureSpec.EXACTLY),
+                    childHeightSpec);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (!virtualized) {
+            int left = getPaddingLeft();
+            int top = getPaddingTop();
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                if (child.getVisibility() == GONE) {
+                    continue;
+                }
+                child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+                left += child.getMeasuredWidth();
+            }
+            layoutGeneration++;
+            captureChildGeometry();
+            return;
+        }
+
+        int height = b - t;
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int position = ((TabLayoutParams) child.getLayoutParams()).position;
+            int left = tabLefts[position];
+            child.layout(left, 0, left + tabWidths[position], height);
+        }
+    }
+
+    /**
+     * 不测量子View直接给出Tab内容所需的宽度
+     */
+    interface ContentWidthProvider {
+        int getContentWidth(int position);
+    }
+
+    /**
+     * 虚拟化Tab的布局参数，记录当前绑定的位置，随View一起回收复用
+     */
+    static class TabLayoutParams extends LinearLayout.LayoutParams {
+        int position = -1;
+
+        TabLayoutParams() {
+            super(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+        }
+    }
+}
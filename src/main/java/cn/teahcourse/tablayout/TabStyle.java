@@ -0,0 +1,204 @@
+package cn.teahcourse.tablayout;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * 从主题、样式和布局属性解析出的TabLayout初始样式，不可变。
+ * <p>
+ * 同一主题下样式资源、布局中直接写的TabLayout属性都相同的导航解析结果相同，
+ * 按(主题, 样式资源, 布局属性原始值, 屏幕密度)缓存后多个TabLayout共享同一个对象，
+ * 同一布局重复inflate时不再重复做单位换算和两次obtainStyledAttributes。只能在主线程使用。
+ */
+final class TabStyle {
+
+    // @formatter:off
+    private static final int[] ATTRS = new int[]{android.R.attr.textSize,
+            android.R.attr.textColor};
+    // @formatter:on
+
+    private static final WeakHashMap<Resources.Theme, HashMap<Key, TabStyle>> CACHE =
+            new WeakHashMap<Resources.Theme, HashMap<Key, TabStyle>>();
+
+    final int indicatorColor;
+    final int underlineColor;
+    final int dividerColor;
+
+    final boolean shouldExpand;
+    final boolean textAllCaps;
+    final boolean virtualized;
+    final boolean flatText;
+
+    final int scrollOffset;
+    final int indicatorHeight;
+    final int underlineHeight;
+    final int indicatorWidth;
+    final int dividerPadding;
+    final int tabPadding;
+    final int dividerWidth;
+
+    final int textSize;
+    final int textColor;
+    final int textColorSelected;
+    final int tabBackgroundResId;
+
+    private TabStyle(Context context, AttributeSet attrs) {
+        //解析默认属性值
+        DisplayMetrics dm = context.getResources().getDisplayMetrics();
+
+        int scrollOffset = dip(52, dm);
+        int indicatorHeight = dip(4, dm);
+        int underlineHeight = dip(2, dm);
+        int dividerPadding = dip(12, dm);
+        int tabPadding = dip(24, dm);
+        int dividerWidth = dip(1, dm);
+        int textSize = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12, dm);
+        int textColor = 0xFF666666;
+
+        //获取系统属性android:textColor/android:textSize文件属性值
+        TypedArray a = context.obtainStyledAttributes(attrs, ATTRS);
+        textSize = a.getDimensionPixelSize(0, textSize);
+        textColor = a.getColor(1, textColor);
+        a.recycle();
+
+        //获取自定义属性配置文件字段
+        a = context.obtainStyledAttributes(attrs, R.styleable.TabLayout);
+        this.indicatorColor = a.getColor(R.styleable.TabLayout_tab_indicator_color, 0xFF666666);
+        this.underlineColor = a.getColor(R.styleable.TabLayout_tab_underline_color, 0x1A000000);
+        this.dividerColor = a.getColor(R.styleable.TabLayout_tab_divider_color, 0x1A000000);
+        this.indicatorHeight = a.getDimensionPixelSize(R.styleable.TabLayout_tab_indicator_height,
+                indicatorHeight);
+        this.indicatorWidth = a.getDimensionPixelSize(R.styleable.TabLayout_tab_indicator_width, -1);
+        this.underlineHeight = a.getDimensionPixelSize(R.styleable.TabLayout_tab_underline_height,
+                underlineHeight);
+        this.dividerPadding = a.getDimensionPixelSize(R.styleable.TabLayout_tab_divider_padding,
+                dividerPadding);
+        this.tabPadding = a.getDimensionPixelSize(R.styleable.TabLayout_tab_padding_left_to_right,
+                tabPadding);
+        this.tabBackgroundResId = a.getResourceId(R.styleable.TabLayout_tab_background,
+                R.drawable.background_tab);
+        this.shouldExpand = a.getBoolean(R.styleable.TabLayout_tab_should_expand, false);
+        this.scrollOffset = a.getDimensionPixelSize(R.styleable.TabLayout_tab_scroll_offset,
+                scrollOffset);
+        this.textAllCaps = a.getBoolean(R.styleable.TabLayout_tab_text_all_caps, true);
+        this.textColorSelected = a.getColor(R.styleable.TabLayout_tab_text_color_selected, 0xFF666666);
+        this.textColor = a.getColor(R.styleable.TabLayout_tab_text_color, textColor);
+        this.textSize = a.getDimensionPixelSize(R.styleable.TabLayout_tab_text_size, textSize);
+        this.virtualized = a.getBoolean(R.styleable.TabLayout_tab_virtualized, false);
+        this.flatText = a.getBoolean(R.styleable.TabLayout_tab_flat_text, false);
+        a.recycle();
+
+        this.dividerWidth = dividerWidth;
+    }
+
+    private static int dip(int value, DisplayMetrics dm) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, dm);
+    }
+
+    /**
+     * 解析context和attrs对应的样式，可以共享时从缓存中返回
+     */
+    static TabStyle resolve(Context context, AttributeSet attrs) {
+        Resources res = context.getResources();
+        DisplayMetrics dm = res.getDisplayMetrics();
+        Key key = new Key(attrs == null ? 0 : attrs.getStyleAttribute(), getInlineAttributes(attrs),
+                dm.density, dm.scaledDensity, res.getConfiguration());
+        Resources.Theme theme = context.getTheme();
+        HashMap<Key, TabStyle> styles = CACHE.get(theme);
+        if (styles == null) {
+            styles = new HashMap<Key, TabStyle>();
+            CACHE.put(theme, styles);
+        }
+        TabStyle style = styles.get(key);
+        if (style == null) {
+            style = new TabStyle(context, attrs);
+            styles.put(key, style);
+        }
+        return style;
+    }
+
+    /**
+     * 布局中直接写的TabLayout属性的原始值，资源引用是固定的id，引用解析出的值随Configuration区分，
+     * 主题属性随主题一起区分
+     */
+    private static String getInlineAttributes(AttributeSet attrs) {
+        if (attrs == null) {
+            return "";
+        }
+        StringBuilder builder = null;
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int attr = attrs.getAttributeNameResource(i);
+            if (attr == 0 || !(contains(ATTRS, attr) || contains(R.styleable.TabLayout, attr))) {
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            }
+            builder.append(attr).append('=').append(attrs.getAttributeValue(i)).append(';');
+        }
+        return builder == null ? "" : builder.toString();
+    }
+
+    private static boolean contains(int[] attrs, int attr) {
+        for (int value : attrs) {
+            if (value == attr) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Key {
+        final int styleResId;
+        final String inlineAttributes;
+        final float density;
+        final float scaledDensity;
+        /**
+         * 资源查找使用的配置（横竖屏、夜间模式等），Activity自行处理配置变化时主题对象不变，
+         * 同一个资源引用解析出的值可能不同。保存副本，不受之后的修改影响
+         */
+        final Configuration configuration;
+
+        Key(int styleResId, String inlineAttributes, float density, float scaledDensity,
+            Configuration configuration) {
+            this.styleResId = styleResId;
+            this.inlineAttributes = inlineAttributes;
+            this.density = density;
+            this.scaledDensity = scaledDensity;
+            this.configuration = new Configuration(configuration);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return styleResId == other.styleResId && inlineAttributes.equals(other.inlineAttributes)
+                    && density == other.density
+                    && scaledDensity == other.scaledDensity
+                    && configuration.equals(other.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = styleResId;
+            result = 31 * result + inlineAttributes.hashCode();
+            result = 31 * result + Float.floatToIntBits(density);
+            result = 31 * result + Float.floatToIntBits(scaledDensity);
+            result = 31 * result + configuration.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package cn.teahcourse.tablayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.widget.TextView;
+
+/**
+ * 文字Tab。开启滑动渐变时标题由TabLayout在绘制时按滑动进度的颜色和缩放绘制，
+ * Tab只绘制背景，滑动过程中不需要修改或重绘Tab View
+ */
+class TabTextView extends TextView {
+
+    private boolean textDrawnByParent = false;
+
+    TabTextView(Context context) {
+        super(context);
+    }
+
+    void setTextDrawnByParent(boolean textDrawnByParent) {
+        if (this.textDrawnByParent != textDrawnByParent) {
+            this.textDrawnByParent = textDrawnByParent;
+            invalidate();
+        }
+    }
+
+    boolean isTextDrawnByParent() {
+        return textDrawnByParent;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        //背景在View.draw中已经绘制，Tab没有复合图片，只需要跳过文字
+        if (!textDrawnByParent) {
+            super.onDraw(canvas);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package cn.teahcourse.tablayout;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * 可在多个TabLayout之间共享的Tab View缓存池。
+ * <p>
+ * 列表项、嵌套Fragment中的TabLayout频繁创建和销毁时，把同一个缓存池设置给这些TabLayout，
+ * 重新绑定或从窗口移除时Tab会放回缓存池，其他TabLayout创建Tab时优先从池中取出复用。
+ * 样式相同的Tab取出后只需要重新绑定内容。
+ * <p>
+ * View持有创建它的Context，只应在同一个Activity内的TabLayout之间共享，只能在主线程使用。
+ *
+ * <pre>
+ * TabViewPool pool = new TabViewPool();
+ * pool.setMaxPooledViews(TabViewPool.TYPE_TEXT, 64);
+ * tabLayout.setTabViewPool(pool);
+ * </pre>
+ */
+public class TabViewPool {
+
+    public static final int TYPE_TEXT = 0;
+    public static final int TYPE_ICON = 1;
+
+    private static final int DEFAULT_MAX_POOLED_VIEWS = 32;
+
+    private final SparseArray<ArrayList<View>> pooledViews = new SparseArray<ArrayList<View>>();
+    private final SparseIntArray maxPooledViews = new SparseIntArray();
+
+    /**
+     * 设置某种类型的Tab最多缓存多少个，超出的部分直接丢弃
+     *
+     * @param type TYPE_TEXT或TYPE_ICON
+     * @param max
+     */
+    public void setMaxPooledViews(int type, int max) {
+        maxPooledViews.put(type, max);
+        ArrayList<View> views = pooledViews.get(type);
+        while (views != null && views.size() > max) {
+            views.remove(views.size() - 1);
+        }
+    }
+
+    public int getPooledViewCount(int type) {
+        ArrayList<View> views = pooledViews.get(type);
+        return views == null ? 0 : views.size();
+    }
+
+    public void clear() {
+        pooledViews.clear();
+    }
+
+    /**
+     * 取出一个由同一Context创建的Tab，没有时返回null
+     */
+    View acquire(int type, Context context) {
+        ArrayList<View> views = pooledViews.get(type);
+        if (views == null) {
+            return null;
+        }
+        for (int i = views.size() - 1; i >= 0; i--) {
+            if (views.get(i).getContext() == context) {
+                return views.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 放回已经从父容器移除的Tab，缓存已满时丢弃
+     */
+    void release(int type, View view) {
+        if (view.getParent() != null) {
+            return;
+        }
+        ArrayList<View> views = pooledViews.get(type);
+        if (views == null) {
+            views = new ArrayList<View>();
+            pooledViews.put(type, views);
+        }
+        if (views.size() < maxPooledViews.get(type, DEFAULT_MAX_POOLED_VIEWS)) {
+            view.setOnClickListener(null);
+            views.add(view);
+        }
+    }
+}
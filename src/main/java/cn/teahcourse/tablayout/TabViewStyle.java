@@ -0,0 +1,59 @@
+package cn.teahcourse.tablayout;
+
+import android.graphics.Typeface;
+
+/**
+ * updateTabStyle设置到Tab View上的样式，不可变。
+ * <p>
+ * 设置样式后把该对象记录在View的tag中，复用View时样式相同就跳过setBackgroundResource、
+ * setTextSize等调用，只重新绑定内容。
+ */
+final class TabViewStyle {
+    final int backgroundResId;
+    final int textSize;
+    final Typeface typeface;
+    final int typefaceStyle;
+    final int textColor;
+    final boolean allCaps;
+
+    TabViewStyle(int backgroundResId, int textSize, Typeface typeface, int typefaceStyle,
+                 int textColor, boolean allCaps) {
+        this.backgroundResId = backgroundResId;
+        this.textSize = textSize;
+        this.typeface = typeface;
+        this.typefaceStyle = typefaceStyle;
+        this.textColor = textColor;
+        this.allCaps = allCaps;
+    }
+
+    boolean matches(int backgroundResId, int textSize, Typeface typeface, int typefaceStyle,
+                    int textColor, boolean allCaps) {
+        return this.backgroundResId == backgroundResId && this.textSize == textSize
+                && this.typeface == typeface && this.typefaceStyle == typefaceStyle
+                && this.textColor == textColor && this.allCaps == allCaps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TabViewStyle)) {
+            return false;
+        }
+        TabViewStyle other = (TabViewStyle) o;
+        return matches(other.backgroundResId, other.textSize, other.typeface, other.typefaceStyle,
+                other.textColor, other.allCaps);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = backgroundResId;
+        result = 31 * result + textSize;
+        result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+        result = 31 * result + typefaceStyle;
+        result = 31 * result + textColor;
+        result = 31 * result + (allCaps ? 1 : 0);
+        return result;
+    }
+}
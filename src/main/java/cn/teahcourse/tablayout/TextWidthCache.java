@@ -0,0 +1,148 @@
+package cn.teahcourse.tablayout;
+
+import android.graphics.Typeface;
+import android.support.v4.util.LruCache;
+import android.text.TextPaint;
+
+import java.util.Locale;
+
+/**
+ * 进程内共享的标题宽度缓存。
+ * <p>
+ * 多个TabLayout、多个页面经常显示相同的分类标题，宽度按(标题, 文字样式)缓存后
+ * 只需要测量一次；标题也可以提前在后台线程测量，避免在首帧布局时做文字排版。
+ */
+final class TextWidthCache {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final LruCache<Key, Float> CACHE = new LruCache<Key, Float>(MAX_ENTRIES);
+
+    private TextWidthCache() {
+    }
+
+    /**
+     * 返回标题按style显示时的宽度，未命中时用paint测量并写入缓存
+     *
+     * @param paint 已经按style设置好字号和字体的画笔，只在调用线程使用
+     */
+    static float getWidth(Style style, String title, TextPaint paint) {
+        Key key = new Key(style, title);
+        Float width = CACHE.get(key);
+        if (width == null) {
+            width = paint.measureText(style.transform(title));
+            CACHE.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * 在后台线程测量一组标题，结果写入缓存，之后同样样式的TabLayout直接命中
+     */
+    static void precompute(final Style style, final String[] titles) {
+        TabExecutors.execute(new Runnable() {
+            @Override
+            public void run() {
+                TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+                style.applyTo(paint);
+                for (String title : titles) {
+                    if (title != null) {
+                        getWidth(style, title, paint);
+                    }
+                }
+            }
+        });
+    }
+
+    static void clear() {
+        CACHE.evictAll();
+    }
+
+    /**
+     * 影响标题宽度的文字样式，不可变，可以跨线程共享
+     */
+    static final class Style {
+        final int textSize;
+        final Typeface typeface;
+        final int typefaceStyle;
+        final boolean allCaps;
+        final Locale locale;
+        private final int hash;
+
+        Style(int textSize, Typeface typeface, int typefaceStyle, boolean allCaps, Locale locale) {
+            this.textSize = textSize;
+            this.typeface = typeface;
+            this.typefaceStyle = typefaceStyle;
+            this.allCaps = allCaps;
+            this.locale = locale;
+
+            int result = textSize;
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + typefaceStyle;
+            result = 31 * result + (allCaps ? 1 : 0);
+            result = 31 * result + locale.hashCode();
+            this.hash = result;
+        }
+
+        boolean matches(int textSize, Typeface typeface, int typefaceStyle, boolean allCaps, Locale locale) {
+            return this.textSize == textSize && this.typeface == typeface
+                    && this.typefaceStyle == typefaceStyle && this.allCaps == allCaps
+                    && this.locale.equals(locale);
+        }
+
+        void applyTo(TextPaint paint) {
+            paint.setTextSize(textSize);
+            paint.setTypeface(Typeface.create(typeface, typefaceStyle));
+        }
+
+        String transform(String title) {
+            return allCaps ? title.toUpperCase(locale) : title;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Style)) {
+                return false;
+            }
+            Style other = (Style) o;
+            return matches(other.textSize, other.typeface, other.typefaceStyle, other.allCaps, other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key {
+        final Style style;
+        final String title;
+        final int hash;
+
+        Key(Style style, String title) {
+            this.style = style;
+            this.title = title;
+            this.hash = 31 * style.hashCode() + title.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && title.equals(other.title) && style.equals(other.style);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package cn.teahcourse.tablayout;
+
+import android.app.Activity;
+import android.support.v4.view.ViewPager;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Adapter内容变化和ViewPager更换或移除Adapter后导航自动更新
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutAdapterTest {
+
+    private TabLayout tabLayout;
+    private ViewPager pager;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        tabLayout = new TabLayout(activity);
+        pager = TestTabs.newPager(activity, new TestTabs.TitleAdapter(TestTabs.titles(5)));
+        tabLayout.setViewPager(pager);
+        activity.setContentView(tabLayout);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    @Test
+    public void adapterChangesAreObserved() {
+        TestTabs.TitleAdapter adapter = (TestTabs.TitleAdapter) pager.getAdapter();
+        adapter.titles = TestTabs.titles(8);
+        adapter.notifyDataSetChanged();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(8, getTabViewCount());
+    }
+
+    @Test
+    public void replacedAdapterIsObserved() {
+        TestTabs.TitleAdapter replacement = new TestTabs.TitleAdapter(TestTabs.titles(3));
+        pager.setAdapter(replacement);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(3, getTabViewCount());
+
+        replacement.titles = TestTabs.titles(6);
+        replacement.notifyDataSetChanged();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(6, getTabViewCount());
+    }
+
+    @Test
+    public void adapterRemovedWhileDetached() {
+        ViewGroup parent = (ViewGroup) tabLayout.getParent();
+        parent.removeView(tabLayout);
+        pager.setAdapter(null);
+        parent.addView(tabLayout);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(0, getTabViewCount());
+
+        pager.setAdapter(new TestTabs.TitleAdapter(TestTabs.titles(4)));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(4, getTabViewCount());
+    }
+
+    private int getTabViewCount() {
+        return ((ViewGroup) tabLayout.getChildAt(0)).getChildCount();
+    }
+}
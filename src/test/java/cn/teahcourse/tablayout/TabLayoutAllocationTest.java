@@ -0,0 +1,274 @@
+package cn.teahcourse.tablayout;
+
+import android.app.Activity;
+import android.graphics.Canvas;
+import android.support.v4.view.ViewPager;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 稳定滑动时导航不分配对象。导航添加到窗口，每帧执行合并后的滚动帧，
+ * 来回滑过全部Tab，虚拟化模式下Tab不断移出视口被回收再绑定
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23, shadows = TabLayoutAllocationTest.FrameChoreographer.class)
+public class TabLayoutAllocationTest {
+
+    private static final int TAB_COUNT = 100;
+    private static final int FRAMES_PER_PAGE = 10;
+    //从第一页滑到最后一页再滑回第一页
+    private static final int ROUND_TRIP_FRAMES = 2 * (TAB_COUNT - 1) * FRAMES_PER_PAGE;
+    //读取计数本身的误差
+    private static final long MEASUREMENT_SLACK_BYTES = 256;
+
+    private TabLayout tabLayout;
+    private ViewGroup tabStrip;
+    private View probe;
+    private ViewPager.OnPageChangeListener pageListener;
+    //绘制在Tab View之上的渐变标题和角标，不经过子View绘制
+    private Method drawOverlays;
+    private final Canvas canvas = new TestTabs.NullCanvas();
+    private final Object[] drawArgs = {canvas};
+
+    private int scrollChanges;
+    private int attachedTabs;
+    private int createdTabs;
+    private final IdentityHashMap<View, Boolean> seenTabs = new IdentityHashMap<View, Boolean>();
+
+    //一次读取计数的分配，Robolectric中一次scrollTo的分配
+    private long readBytes;
+    private long scrollHarnessBytes;
+
+    //按帧统计：不绑定Tab的帧超出基线的分配，以及发生回收绑定的帧数
+    private long steadyBytes;
+    private int bindFrames;
+
+    @Before
+    public void setUp() throws Exception {
+        FrameChoreographer.reset();
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        tabLayout = new TabLayout(activity) {
+            @Override
+            protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+                super.onScrollChanged(l, t, oldl, oldt);
+                scrollChanges++;
+            }
+        };
+        //滚动条渐隐由Handler延时任务驱动，不属于导航本身
+        tabLayout.setHorizontalScrollBarEnabled(false);
+        tabLayout.setViewPager(TestTabs.newPager(activity,
+                new TestTabs.TitleAdapter(TestTabs.titles(TAB_COUNT))));
+
+        probe = new View(activity);
+        FrameLayout root = new FrameLayout(activity);
+        root.addView(tabLayout, new FrameLayout.LayoutParams(TestTabs.WIDTH, TestTabs.HEIGHT));
+        root.addView(probe, new FrameLayout.LayoutParams(TestTabs.WIDTH, TestTabs.HEIGHT));
+        activity.setContentView(root);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        TestTabs.layout(tabLayout);
+
+        tabStrip = (ViewGroup) tabLayout.getChildAt(0);
+        tabStrip.setOnHierarchyChangeListener(new ViewGroup.OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                attachedTabs++;
+                if (!seenTabs.containsKey(child)) {
+                    createdTabs++;
+                    seenTabs.put(child, Boolean.TRUE);
+                }
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+            }
+        });
+
+        Field field = TabLayout.class.getDeclaredField("pageListener");
+        field.setAccessible(true);
+        pageListener = (ViewPager.OnPageChangeListener) field.get(tabLayout);
+        drawOverlays = TabLayout.class.getDeclaredMethod("drawOverlays", Canvas.class);
+        drawOverlays.setAccessible(true);
+    }
+
+    @Test
+    public void swipingAllocatesNothing() throws Exception {
+        assertSwipeAllocatesNothing();
+        assertEquals(0, bindFrames);
+    }
+
+    @Test
+    public void virtualizedSwipingAllocatesNothing() throws Exception {
+        tabLayout.setVirtualized(true);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        TestTabs.layout(tabLayout);
+
+        assertSwipeAllocatesNothing();
+        //Tab确实移出视口并被回收绑定，回收的Tab全部来自预热时创建的View
+        assertTrue("no tab was recycled", bindFrames > 0);
+        assertTrue(tabStrip.getChildCount() < TAB_COUNT);
+        assertEquals(0, createdTabs);
+    }
+
+    @Test
+    public void crossfadeSwipingWithBadgesAllocatesNothing() throws Exception {
+        tabLayout.setTextCrossfadeEnabled(true);
+        tabLayout.setSelectedTextScale(1.2f);
+        for (int i = 0; i < TAB_COUNT; i += 7) {
+            tabLayout.setBadge(i, i * 3);
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        FrameChoreographer.doFrame();
+
+        assertSwipeAllocatesNothing();
+        assertEquals(0, bindFrames);
+    }
+
+    /**
+     * 预热一个来回后再滑两个来回。重新绑定Tab时TextView的setText和测量会在框架内分配对象，
+     * 这些帧只检查没有创建新的Tab View，其余帧检查导航没有分配对象
+     */
+    private void assertSwipeAllocatesNothing() throws Exception {
+        swipe(ROUND_TRIP_FRAMES, false);
+        calibrate();
+
+        scrollChanges = 0;
+        createdTabs = 0;
+        swipe(2 * ROUND_TRIP_FRAMES, true);
+
+        assertTrue("strip did not scroll", scrollChanges > 0);
+        assertTrue("allocated " + steadyBytes + " bytes in " + (2 * ROUND_TRIP_FRAMES - bindFrames)
+                + " frames", steadyBytes <= MEASUREMENT_SLACK_BYTES);
+    }
+
+    /**
+     * 测量读取计数本身和Robolectric中一次scrollTo的分配，真机上scrollTo不分配对象
+     */
+    private void calibrate() {
+        long start = TestTabs.allocatedBytes();
+        readBytes = TestTabs.allocatedBytes() - start;
+        scrollHarnessBytes = 0;
+        for (int i = 0; i < 64; i++) {
+            //滚动位置都在Integer缓存之外，作为上限
+            start = TestTabs.allocatedBytes();
+            probe.scrollTo(1000 + i, 0);
+            scrollHarnessBytes = Math.max(scrollHarnessBytes, TestTabs.allocatedBytes() - start - readBytes);
+        }
+    }
+
+    /**
+     * 来回滑动，每次回调后执行一帧动画回调并绘制
+     *
+     * @param measure 是否按帧统计分配
+     */
+    private void swipe(int frames, boolean measure) throws Exception {
+        steadyBytes = 0;
+        bindFrames = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            int progress = frame % ROUND_TRIP_FRAMES;
+            if (progress > ROUND_TRIP_FRAMES / 2) {
+                progress = ROUND_TRIP_FRAMES - progress;
+            }
+            int position = progress / FRAMES_PER_PAGE;
+            float offset = (progress % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE;
+
+            int scrolls = scrollChanges;
+            int attached = attachedTabs;
+            long start = TestTabs.allocatedBytes();
+
+            pageListener.onPageScrolled(position, offset, (int) (offset * TestTabs.WIDTH));
+            FrameChoreographer.doFrame();
+            tabLayout.onDraw(canvas);
+            drawOverlays.invoke(tabLayout, drawArgs);
+
+            long bytes = TestTabs.allocatedBytes() - start - readBytes
+                    - (scrollChanges - scrolls) * scrollHarnessBytes;
+            if (!measure) {
+                continue;
+            }
+            if (attachedTabs != attached) {
+                bindFrames++;
+            } else if (bytes > 0) {
+                steadyBytes += bytes;
+            }
+        }
+    }
+
+    /**
+     * 代替Robolectric默认的Choreographer：回调保存在预先分配的数组中，由测试逐帧执行，
+     * 调度本身不分配对象。只执行动画回调，布局和绘制由测试直接驱动
+     */
+    @Implements(Choreographer.class)
+    public static class FrameChoreographer extends ShadowChoreographer {
+        //Choreographer.CALLBACK_ANIMATION
+        private static final int CALLBACK_ANIMATION = 1;
+        private static final int CAPACITY = 64;
+
+        private static final Runnable[] callbacks = new Runnable[CAPACITY];
+        private static final Runnable[] running = new Runnable[CAPACITY];
+        private static int callbackCount;
+
+        static void reset() {
+            Arrays.fill(callbacks, null);
+            callbackCount = 0;
+        }
+
+        /**
+         * 执行这一帧之前提交的动画回调，回调中再次提交的在下一帧执行
+         */
+        static void doFrame() {
+            int count = callbackCount;
+            System.arraycopy(callbacks, 0, running, 0, count);
+            Arrays.fill(callbacks, 0, count, null);
+            callbackCount = 0;
+            for (int i = 0; i < count; i++) {
+                Runnable callback = running[i];
+                running[i] = null;
+                callback.run();
+            }
+        }
+
+        @Implementation
+        public void postCallbackDelayed(int callbackType, Runnable action, Object token, long delayMillis) {
+            if (callbackType != CALLBACK_ANIMATION) {
+                return;
+            }
+            if (callbackCount == CAPACITY) {
+                throw new IllegalStateException("Too many animation callbacks in one frame");
+            }
+            callbacks[callbackCount++] = action;
+        }
+
+        @Implementation
+        public void removeCallbacks(int callbackType, Runnable action, Object token) {
+            int kept = 0;
+            for (int i = 0; i < callbackCount; i++) {
+                if (action != null && callbacks[i] != action) {
+                    callbacks[kept++] = callbacks[i];
+                }
+            }
+            Arrays.fill(callbacks, kept, callbackCount, null);
+            callbackCount = kept;
+        }
+    }
+}
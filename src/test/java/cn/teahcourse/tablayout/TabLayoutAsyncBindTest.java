@@ -0,0 +1,132 @@
+package cn.teahcourse.tablayout;
+
+import android.support.v4.view.PagerAdapter;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 没有开启虚拟化时的异步绑定，以及绑定过程中Adapter变化
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutAsyncBindTest {
+
+    private static final long BIND_TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void textTabsAttachWithoutVirtualization() throws Exception {
+        assertTabsAttached(new TestTabs.TitleAdapter(TestTabs.titles(200)));
+    }
+
+    @Test
+    public void iconTabsAttachWithoutVirtualization() throws Exception {
+        assertTabsAttached(new TestTabs.IconAdapter(200));
+    }
+
+    private void assertTabsAttached(PagerAdapter adapter) throws Exception {
+        TabLayout tabLayout = new TabLayout(RuntimeEnvironment.application);
+        tabLayout.setVirtualized(false);
+        tabLayout.setAsyncBinding(true);
+        final boolean[] bound = new boolean[1];
+        tabLayout.setOnTabsBoundListener(new TabLayout.OnTabsBoundListener() {
+            @Override
+            public void onTabsBound(int tabCount) {
+                bound[0] = true;
+            }
+
+            @Override
+            public void onTabsBindCancelled() {
+            }
+        });
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        TestTabs.layout(tabLayout);
+
+        //后台线程分块读取，结果投递到主线程
+        long deadline = System.currentTimeMillis() + BIND_TIMEOUT_MILLIS;
+        while (!bound[0] && System.currentTimeMillis() < deadline) {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            Thread.sleep(10);
+        }
+        assertTrue("binding did not finish", bound[0]);
+
+        TestTabs.layout(tabLayout);
+        ViewGroup tabs = (ViewGroup) tabLayout.getChildAt(0);
+        int attached = tabs.getChildCount();
+        //只创建视口附近的Tab
+        assertTrue("attached " + attached + " tabs", attached > 0 && attached < adapter.getCount());
+    }
+
+    @Test
+    public void adapterShrinkingDuringBindRebinds() throws Exception {
+        //后台线程读到第150页时Adapter已经只剩100页
+        TestTabs.TitleAdapter adapter = new TestTabs.TitleAdapter(TestTabs.titles(200)) {
+            @Override
+            public CharSequence getPageTitle(int position) {
+                if (position == 150 && titles.length == 200) {
+                    titles = TestTabs.titles(100);
+                }
+                return super.getPageTitle(position);
+            }
+        };
+        final int[] boundCount = {-1};
+        final int[] cancelled = new int[1];
+        TabLayout tabLayout = new TabLayout(RuntimeEnvironment.application);
+        tabLayout.setAsyncBinding(true);
+        tabLayout.setOnTabsBoundListener(new TabLayout.OnTabsBoundListener() {
+            @Override
+            public void onTabsBound(int tabCount) {
+                boundCount[0] = tabCount;
+            }
+
+            @Override
+            public void onTabsBindCancelled() {
+                cancelled[0]++;
+            }
+        });
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+
+        long deadline = System.currentTimeMillis() + BIND_TIMEOUT_MILLIS;
+        while (boundCount[0] < 0 && System.currentTimeMillis() < deadline) {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            Thread.sleep(10);
+        }
+        assertEquals(1, cancelled[0]);
+        assertEquals(100, boundCount[0]);
+    }
+
+    @Test
+    public void nullTitleCancelsBind() throws Exception {
+        TestTabs.TitleAdapter adapter = new TestTabs.TitleAdapter(TestTabs.titles(200));
+        adapter.titles[150] = null;
+        final boolean[] cancelled = new boolean[1];
+        TabLayout tabLayout = new TabLayout(RuntimeEnvironment.application);
+        tabLayout.setAsyncBinding(true);
+        tabLayout.setOnTabsBoundListener(new TabLayout.OnTabsBoundListener() {
+            @Override
+            public void onTabsBound(int tabCount) {
+            }
+
+            @Override
+            public void onTabsBindCancelled() {
+                cancelled[0] = true;
+            }
+        });
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+
+        long deadline = System.currentTimeMillis() + BIND_TIMEOUT_MILLIS;
+        while (!cancelled[0] && System.currentTimeMillis() < deadline) {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            Thread.sleep(10);
+        }
+        assertTrue("binding was not cancelled", cancelled[0]);
+    }
+}
@@ -0,0 +1,80 @@
+package cn.teahcourse.tablayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 角标的跨线程更新和随Tab平移
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutBadgeTest {
+
+    private TabLayout tabLayout;
+    private TestTabs.TitleAdapter adapter;
+
+    @Before
+    public void setUp() {
+        tabLayout = new TabLayout(RuntimeEnvironment.application);
+        adapter = new TestTabs.TitleAdapter(TestTabs.titles(10));
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        TestTabs.layout(tabLayout);
+    }
+
+    @Test
+    public void updatesFromBackgroundThreadWhileDetached() throws Exception {
+        setBadgeOnBackgroundThread(2, 5);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(5, tabLayout.getBadge(2));
+
+        //之前的更新执行后，后续更新仍然生效
+        setBadgeOnBackgroundThread(2, 7);
+        setBadgeOnBackgroundThread(3, 1);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(7, tabLayout.getBadge(2));
+        assertEquals(1, tabLayout.getBadge(3));
+    }
+
+    @Test
+    public void badgesShiftWithInsertedAndRemovedTabs() {
+        tabLayout.setBadge(2, 5);
+        tabLayout.setBadge(6, 9);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        String[] titles = new String[11];
+        titles[0] = "New";
+        System.arraycopy(adapter.titles, 0, titles, 1, 10);
+        adapter.titles = titles;
+        tabLayout.notifyTabsInserted(0, 1);
+        assertEquals(0, tabLayout.getBadge(2));
+        assertEquals(5, tabLayout.getBadge(3));
+        assertEquals(9, tabLayout.getBadge(7));
+
+        titles = new String[10];
+        System.arraycopy(adapter.titles, 0, titles, 0, 3);
+        System.arraycopy(adapter.titles, 4, titles, 3, 7);
+        adapter.titles = titles;
+        tabLayout.notifyTabsRemoved(3, 1);
+        assertEquals(0, tabLayout.getBadge(3));
+        assertEquals(9, tabLayout.getBadge(6));
+    }
+
+    private void setBadgeOnBackgroundThread(final int position, final int count) throws InterruptedException {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tabLayout.setBadge(position, count);
+            }
+        });
+        thread.start();
+        thread.join();
+    }
+}
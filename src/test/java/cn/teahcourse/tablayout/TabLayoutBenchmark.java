@@ -0,0 +1,172 @@
+package cn.teahcourse.tablayout;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.v4.view.ViewPager;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.Locale;
+
+/**
+ * TabLayout热点路径的JVM基准，输出每次操作的耗时和分配字节数。
+ * Robolectric下的绝对耗时与真机不同，用于比较修改前后的变化。
+ * 默认随单元测试跳过，需要时单独运行：
+ *
+ * <pre>
+ * ./gradlew testDebugUnitTest -Dtablayout.bench=true --tests '*TabLayoutBenchmark' -i
+ * </pre>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutBenchmark {
+
+    private static final int[] TAB_COUNTS = {10, 100, 1000, 10000};
+    private static final int FRAME_TAB_COUNT = 100;
+
+    private final Canvas canvas = new TestTabs.NullCanvas();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean("tablayout.bench"));
+    }
+
+    @Test
+    public void notifyDataSetChanged() {
+        for (boolean virtualized : new boolean[]{false, true}) {
+            for (int count : TAB_COUNTS) {
+                final TestTabs.TitleAdapter adapter = new TestTabs.TitleAdapter(TestTabs.titles(count));
+                final TabLayout tabLayout = newTabLayout(adapter, virtualized);
+                //两组标题交替，每次都需要重新绑定全部Tab
+                final String[][] titles = {renamedTitles(count), adapter.titles};
+                int ops = Math.max(3, 3000 / count);
+                run(String.format(Locale.US, "notifyDataSetChanged %s %d tabs",
+                        virtualized ? "virtualized" : "normal", count), ops, new Op() {
+                    @Override
+                    public void run(int i) {
+                        adapter.titles = titles[i & 1];
+                        tabLayout.notifyDataSetChanged();
+                        TestTabs.layout(tabLayout);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void onDraw() {
+        final TabLayout tabLayout = newTabLayout(
+                new TestTabs.TitleAdapter(TestTabs.titles(FRAME_TAB_COUNT)), false);
+        run("onDraw " + FRAME_TAB_COUNT + " tabs", 20000, new Op() {
+            @Override
+            public void run(int i) {
+                tabLayout.onDraw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void onPageScrolledSweep() throws Exception {
+        for (boolean virtualized : new boolean[]{false, true}) {
+            final TabLayout tabLayout = newTabLayout(
+                    new TestTabs.TitleAdapter(TestTabs.titles(FRAME_TAB_COUNT)), virtualized);
+            final ViewPager.OnPageChangeListener listener = getPageListener(tabLayout);
+            //每次操作从第一页滑到最后一页，每页40帧
+            final int frames = (FRAME_TAB_COUNT - 1) * 40;
+            run("onPageScrolled sweep " + (virtualized ? "virtualized" : "normal")
+                    + ", per callback", 20, frames, new Op() {
+                @Override
+                public void run(int i) {
+                    for (int frame = 0; frame < frames; frame++) {
+                        float offset = (frame % 40) / 40f;
+                        listener.onPageScrolled(frame / 40, offset, (int) (offset * TestTabs.WIDTH));
+                    }
+                }
+            });
+        }
+    }
+
+    @Test
+    public void restyle() {
+        final TabLayout tabLayout = newTabLayout(
+                new TestTabs.TitleAdapter(TestTabs.titles(FRAME_TAB_COUNT)), false);
+        run("editStyle text color " + FRAME_TAB_COUNT + " tabs", 2000, new Op() {
+            @Override
+            public void run(int i) {
+                tabLayout.editStyle()
+                        .setTextColor((i & 1) == 0 ? Color.RED : Color.BLUE)
+                        .apply();
+            }
+        });
+        run("editStyle text size " + FRAME_TAB_COUNT + " tabs", 200, new Op() {
+            @Override
+            public void run(int i) {
+                tabLayout.editStyle()
+                        .setTextSize((i & 1) == 0 ? 24 : 28)
+                        .apply();
+                TestTabs.layout(tabLayout);
+            }
+        });
+    }
+
+    private static TabLayout newTabLayout(TestTabs.TitleAdapter adapter, boolean virtualized) {
+        TabLayout tabLayout = new TabLayout(RuntimeEnvironment.application);
+        tabLayout.setVirtualized(virtualized);
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        TestTabs.layout(tabLayout);
+        return tabLayout;
+    }
+
+    private static String[] renamedTitles(int count) {
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            titles[i] = "Page " + i;
+        }
+        return titles;
+    }
+
+    private static ViewPager.OnPageChangeListener getPageListener(TabLayout tabLayout) throws Exception {
+        Field field = TabLayout.class.getDeclaredField("pageListener");
+        field.setAccessible(true);
+        return (ViewPager.OnPageChangeListener) field.get(tabLayout);
+    }
+
+    private static void run(String name, int ops, Op op) {
+        run(name, ops, 1, op);
+    }
+
+    /**
+     * 预热同样的次数后计时
+     *
+     * @param ops        计时的操作次数
+     * @param innerCount 每次操作内部的重复次数，结果按单次内部操作报告
+     */
+    private static void run(String name, int ops, int innerCount, Op op) {
+        for (int i = 0; i < ops; i++) {
+            op.run(i);
+        }
+        long startBytes = TestTabs.allocatedBytes();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            op.run(i);
+        }
+        long nanos = System.nanoTime() - startNanos;
+        long bytes = TestTabs.allocatedBytes() - startBytes;
+        long total = (long) ops * innerCount;
+        System.out.println(String.format(Locale.US, "%-48s %12.1f ns/op %12.1f B/op",
+                name, nanos / (double) total, bytes / (double) total));
+    }
+
+    private interface Op {
+        void run(int i);
+    }
+}
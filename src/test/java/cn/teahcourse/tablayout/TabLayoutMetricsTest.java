@@ -0,0 +1,68 @@
+package cn.teahcourse.tablayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 每一次Tab构建都通过MetricsListener回调，且只回调一次
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutMetricsTest {
+
+    private TabLayout tabLayout;
+    private TestTabs.TitleAdapter adapter;
+    private int builds;
+    private int lastTabCount;
+
+    @Before
+    public void setUp() {
+        tabLayout = new TabLayout(RuntimeEnvironment.application);
+        tabLayout.setMetricsListener(new TabLayout.MetricsListener() {
+            @Override
+            public void onTabsBuilt(int tabCount, long durationNanos) {
+                builds++;
+                lastTabCount = tabCount;
+            }
+
+            @Override
+            public void onFrameDrawn(long drawNanos, int scrollCallbacks, int restyledTabs, int liveTabViews) {
+            }
+        });
+        adapter = new TestTabs.TitleAdapter(TestTabs.titles(5));
+    }
+
+    @Test
+    public void firstBindIsReported() {
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        assertEquals(1, builds);
+        assertEquals(5, lastTabCount);
+    }
+
+    @Test
+    public void modeChangeRebuildIsReported() {
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        tabLayout.setVirtualized(true);
+        assertEquals(2, builds);
+    }
+
+    @Test
+    public void incrementalUpdateIsReportedOnce() {
+        tabLayout.setViewPager(TestTabs.newPager(RuntimeEnvironment.application, adapter));
+        adapter.titles = TestTabs.titles(7);
+        tabLayout.notifyDataSetChanged();
+        assertEquals(2, builds);
+        assertEquals(7, lastTabCount);
+
+        adapter.titles = TestTabs.titles(8);
+        tabLayout.notifyTabsInserted(7, 1);
+        assertEquals(3, builds);
+        assertEquals(8, lastTabCount);
+    }
+}
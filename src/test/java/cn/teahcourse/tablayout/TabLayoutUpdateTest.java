@@ -0,0 +1,224 @@
+package cn.teahcourse.tablayout;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.support.v4.view.ViewPager;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * notifyDataSetChanged的增量更新：未变化的Tab保留原View，内容相同的Tab移动时不重新绑定，
+ * 更新后选中颜色仍然正确。修改样式时只有allCaps变化才重新设置文字
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabLayoutUpdateTest {
+
+    private static final int TEXT_COLOR = Color.GRAY;
+    private static final int TEXT_COLOR_SELECTED = Color.RED;
+
+    private TabLayout tabLayout;
+    private ViewPager pager;
+    private TestTabs.TitleAdapter adapter;
+    //每个Tab View设置标题的次数
+    private final HashMap<View, BindCounter> bindCounters = new HashMap<View, BindCounter>();
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        adapter = new TestTabs.TitleAdapter(new String[]{"A", "B", "C", "D", "E"});
+        pager = TestTabs.newPager(activity, adapter);
+        tabLayout = new TabLayout(activity);
+        tabLayout.setViewPager(pager);
+        tabLayout.editStyle()
+                .setTextColor(TEXT_COLOR)
+                .setTextColorSelected(TEXT_COLOR_SELECTED)
+                .apply();
+        activity.setContentView(tabLayout);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    @Test
+    public void insertInMiddle() {
+        select(3);
+        View[] old = watchTabs();
+
+        update("A", "B", "X", "C", "D", "E");
+
+        assertTabs("A", "B", "X", "C", "D", "E");
+        assertKept(old, 0, 0, 2);
+        assertKept(old, 2, 3, 3);
+        assertFalse(contains(old, getTab(2)));
+        assertSelectedColor(3);
+    }
+
+    @Test
+    public void remove() {
+        select(3);
+        View[] old = watchTabs();
+
+        update("A", "B", "D", "E");
+
+        assertTabs("A", "B", "D", "E");
+        assertKept(old, 0, 0, 2);
+        assertKept(old, 3, 2, 2);
+        assertSelectedColor(3);
+    }
+
+    @Test
+    public void rename() {
+        select(2);
+        View[] old = watchTabs();
+
+        update("A", "B", "X", "D", "E");
+
+        assertTabs("A", "B", "X", "D", "E");
+        assertKept(old, 0, 0, 2);
+        assertKept(old, 3, 3, 2);
+        //变化的Tab复用原来的View重新绑定
+        assertSame(old[2], getTab(2));
+        assertEquals(1, bindCounters.get(old[2]).count);
+        assertSelectedColor(2);
+    }
+
+    @Test
+    public void permutation() {
+        select(1);
+        View[] old = watchTabs();
+
+        update("A", "D", "C", "B", "E");
+
+        assertTabs("A", "D", "C", "B", "E");
+        assertKept(old, 0, 0, 1);
+        assertKept(old, 4, 4, 1);
+        //内容相同的Tab直接移动，不重新绑定
+        assertKept(old, 3, 1, 1);
+        assertKept(old, 2, 2, 1);
+        assertKept(old, 1, 3, 1);
+        assertSelectedColor(1);
+    }
+
+    @Test
+    public void restyleDoesNotResetText() {
+        select(1);
+        View[] old = watchTabs();
+
+        //只修改颜色
+        tabLayout.editStyle().setTextColorSelected(Color.BLUE).apply();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertKept(old, 0, 0, old.length);
+        assertEquals(Color.BLUE, ((TextView) getTab(1)).getCurrentTextColor());
+        assertEquals(TEXT_COLOR, ((TextView) getTab(0)).getCurrentTextColor());
+
+        //allCaps没有变化时不会重新设置文字
+        tabLayout.editStyle().setTextSize(30).apply();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertKept(old, 0, 0, old.length);
+
+        tabLayout.editStyle().setTextAllCaps(false).apply();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue(bindCounters.get(old[0]).count > 0);
+    }
+
+    private void select(int position) {
+        pager.setCurrentItem(position, false);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertSelectedColor(position);
+    }
+
+    private void update(String... titles) {
+        adapter.titles = titles;
+        tabLayout.notifyDataSetChanged();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    /**
+     * 在当前的Tab View上记录之后的绑定次数
+     */
+    private View[] watchTabs() {
+        View[] tabs = new View[getTabCount()];
+        for (int i = 0; i < tabs.length; i++) {
+            tabs[i] = getTab(i);
+            BindCounter counter = new BindCounter();
+            ((TextView) tabs[i]).addTextChangedListener(counter);
+            bindCounters.put(tabs[i], counter);
+        }
+        return tabs;
+    }
+
+    /**
+     * old中从oldStart起的count个Tab原样出现在newStart起的位置上，并且没有重新绑定
+     */
+    private void assertKept(View[] old, int oldStart, int newStart, int count) {
+        for (int i = 0; i < count; i++) {
+            assertSame(old[oldStart + i], getTab(newStart + i));
+            assertEquals(0, bindCounters.get(old[oldStart + i]).count);
+        }
+    }
+
+    private void assertTabs(String... titles) {
+        assertEquals(titles.length, getTabCount());
+        for (int i = 0; i < titles.length; i++) {
+            assertEquals(titles[i], ((TextView) getTab(i)).getText().toString());
+        }
+    }
+
+    private void assertSelectedColor(int selected) {
+        for (int i = 0; i < getTabCount(); i++) {
+            assertEquals("tab " + i, i == selected ? TEXT_COLOR_SELECTED : TEXT_COLOR,
+                    ((TextView) getTab(i)).getCurrentTextColor());
+        }
+    }
+
+    private static boolean contains(View[] views, View view) {
+        for (View v : views) {
+            if (v == view) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getTabCount() {
+        return ((ViewGroup) tabLayout.getChildAt(0)).getChildCount();
+    }
+
+    private View getTab(int position) {
+        return ((ViewGroup) tabLayout.getChildAt(0)).getChildAt(position);
+    }
+
+    private static class BindCounter implements TextWatcher {
+        int count;
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package cn.teahcourse.tablayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 测试和基准共用的导航、Adapter和计量工具
+ */
+final class TestTabs {
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 144;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private TestTabs() {
+    }
+
+    static ViewPager newPager(Context context, PagerAdapter adapter) {
+        ViewPager pager = new ViewPager(context);
+        pager.setAdapter(adapter);
+        return pager;
+    }
+
+    /**
+     * 按固定尺寸测量并布局导航，不需要添加到窗口
+     */
+    static void layout(TabLayout tabLayout) {
+        tabLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        tabLayout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static String[] titles(int count) {
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            titles[i] = "Tab " + i;
+        }
+        return titles;
+    }
+
+    static class TitleAdapter extends PagerAdapter {
+        String[] titles;
+
+        TitleAdapter(String[] titles) {
+            this.titles = titles;
+        }
+
+        @Override
+        public int getCount() {
+            return titles.length;
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            return titles[position];
+        }
+
+        @Override
+        public boolean isViewFromObject(View view, Object object) {
+            return view == object;
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            View view = new View(container.getContext());
+            container.addView(view);
+            return view;
+        }
+
+        @Override
+        public void destroyItem(ViewGroup container, int position, Object object) {
+            container.removeView((View) object);
+        }
+    }
+
+    static class IconAdapter extends TitleAdapter implements TabLayout.IconTabProvider {
+
+        IconAdapter(int count) {
+            super(titles(count));
+        }
+
+        @Override
+        public int getPageIconResId(int position) {
+            return R.drawable.background_tab;
+        }
+    }
+
+    /**
+     * 丢弃全部绘制操作的画布，只计量TabLayout自身的开销
+     */
+    static class NullCanvas extends Canvas {
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+        }
+
+        @Override
+        public void drawRect(Rect r, Paint paint) {
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+        }
+
+        @Override
+        public void drawLines(float[] pts, Paint paint) {
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+        }
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+        }
+
+        @Override
+        public int save() {
+            return 1;
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public void restoreToCount(int saveCount) {
+        }
+
+        @Override
+        public void scale(float sx, float sy) {
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+    }
+}